@@ -0,0 +1,54 @@
+package com.example.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @ClassName: BenchmarkRunner
+ * @Description: 依次用1、2、4...直到CPU核数个线程跑一遍基准测试，每种线程数输出一个JSON结果文件
+ * 用法：
+ * cd demo && mvn install
+ * cd ../benchmark && mvn package
+ * java -jar target/benchmarks.jar [include正则] [结果目录] [最大线程数]
+ * 例如 java -jar target/benchmarks.jar DeadLock results 8
+ * 结果文件名为 jmh-threads-N.json，可以直接归档到每次发布的记录里做回归对比。
+ * @Create: 2026-10-18 11:25
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "com.example.*";
+        File resultDir = new File(args.length > 1 ? args[1] : "jmh-results");
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        if (!resultDir.isDirectory() && !resultDir.mkdirs()) {
+            throw new IllegalStateException("cannot create result dir " + resultDir);
+        }
+        for (int threads : threadCounts(maxThreads)) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDir, "jmh-threads-" + threads + ".json").getPath());
+            new Runner(options.build()).run();
+        }
+    }
+
+    /**
+     * 1、2、4...翻倍，最后一定包含maxThreads本身
+     */
+    static List<Integer> threadCounts(int maxThreads) {
+        List<Integer> counts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads <<= 1) {
+            counts.add(threads);
+        }
+        counts.add(Math.max(1, maxThreads));
+        return counts;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.lock.deadlock;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * @ClassName: HotItemBenchmark
+ * @Description: 购物车按Zipf分布集中到少数爆款时，对比排序加锁、合并扣减和无锁CAS三种下单方式
+ * @Create: 2026-10-18 14:40
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HotItemBenchmark {
+
+    @Param({"0", "1.2", "2"})
+    public double skew;
+
+    @Param("100000000")
+    public int stock;
+
+    private DeadLockController controller;
+
+    private double[] cdf;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        // 普通ReentrantLock，不注册到全局加锁顺序图、不记录耗时统计，见DeadLockController的构造方法
+        controller = new DeadLockController(10, stock, null, name -> new ReentrantLock());
+        cdf = controller.zipfCdf(skew);
+    }
+
+    @Benchmark
+    public boolean sortedLock() {
+        List<DeadLockController.Item> cart = controller.createZipfCart(cdf).stream()
+                .sorted(Comparator.comparing(DeadLockController.Item::getName))
+                .collect(Collectors.toList());
+        return controller.createOrder(cart, 10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public boolean combining() {
+        return controller.createOrderCombining(controller.createZipfCart(cdf));
+    }
+
+    @Benchmark
+    public boolean lockFree() {
+        return controller.createOrderLockFree(controller.createZipfCart(cdf));
+    }
+}
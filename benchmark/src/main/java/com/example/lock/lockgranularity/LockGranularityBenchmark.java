@@ -0,0 +1,40 @@
+package com.example.lock.lockgranularity;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName: LockGranularityBenchmark
+ * @Description: 对比把slow()一起锁住的粗粒度加锁和只锁integerList的细粒度加锁
+ * 每次操作都包含10ms的slow()，所以单线程时两者差不多，线程越多差距越大，
+ * 对应控制器注释里1000次操作11秒和1.4秒的结论。
+ * @Create: 2026-10-18 11:10
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LockGranularityBenchmark {
+
+    private LockGranularityController controller;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        // 每轮迭代换一个新实例，避免integerList无限增长
+        controller = new LockGranularityController();
+    }
+
+    @Benchmark
+    public void coarse(ThreadParams threadParams) {
+        controller.coarseAdd(threadParams.getThreadIndex());
+    }
+
+    @Benchmark
+    public void fine(ThreadParams threadParams) {
+        controller.fineAdd(threadParams.getThreadIndex());
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.lock.lockscope;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName: DataBenchmark
+ * @Description: 对比Data.wrong()和Data.right()的吞吐
+ * wrong锁的是各自的实例，相当于没有加锁，结果不对但跑得快；right锁的是静态字段，
+ * 结果正确，代价是所有线程排队进入同一把锁。线程数由BenchmarkRunner控制。
+ * @Create: 2026-10-18 11:05
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataBenchmark {
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        Data.reset();
+    }
+
+    @Benchmark
+    public void wrong() {
+        new Data().wrong();
+    }
+
+    @Benchmark
+    public void right() {
+        new Data().right();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.threadpool.executor;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ClassName: EagerPoolBenchmark
+ * @Description: 重放ThreadPoolOOMController.right()的负载：每个tick提交一个任务，一共20个，每个任务执行10个tick
+ * 默认线程池（2核心、5最大、队列10）对比EagerThreadPoolExecutor（同样的参数），
+ * 除了整批任务的完成时间，还通过辅助计数器输出被拒绝的任务数和平均任务延迟（提交到完成）。
+ * 原始负载的tick是1秒，这里默认10ms，结论一样：默认线程池拒绝3个，激进线程池一个都不拒绝。
+ * @Create: 2026-10-19 11:50
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EagerPoolBenchmark {
+
+    private static final int TASKS = 20;
+
+    @Param("10")
+    public long tickMillis;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Result {
+        public long rejected;
+        public long completed;
+        public long latencyMillis;
+
+        @Setup(Level.Iteration)
+        public void clean() {
+            rejected = 0;
+            completed = 0;
+            latencyMillis = 0;
+        }
+    }
+
+    @Benchmark
+    public void defaultPool(Result result) throws InterruptedException {
+        run(new ThreadPoolExecutor(2, 5, 5, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(10), new ThreadPoolExecutor.AbortPolicy()), result);
+    }
+
+    @Benchmark
+    public void eagerPool(Result result) throws InterruptedException {
+        run(new EagerThreadPoolExecutor(2, 5, 5, TimeUnit.SECONDS,
+                new EagerTaskQueue(10), Executors.defaultThreadFactory(), new ThreadPoolExecutor.AbortPolicy()), result);
+    }
+
+    private void run(ThreadPoolExecutor threadPool, Result result) throws InterruptedException {
+        AtomicLong latency = new AtomicLong();
+        for (int i = 0; i < TASKS; i++) {
+            TimeUnit.MILLISECONDS.sleep(tickMillis);
+            long submitted = System.nanoTime();
+            try {
+                threadPool.execute(() -> {
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(tickMillis * 10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    latency.addAndGet(System.nanoTime() - submitted);
+                });
+            } catch (RejectedExecutionException ex) {
+                result.rejected++;
+            }
+        }
+        threadPool.shutdown();
+        threadPool.awaitTermination(1, TimeUnit.MINUTES);
+        long completed = threadPool.getCompletedTaskCount();
+        result.completed += completed;
+        result.latencyMillis += completed == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(latency.get() / completed);
+    }
+}
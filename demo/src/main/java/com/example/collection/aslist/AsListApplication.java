@@ -1,5 +1,7 @@
 package com.example.collection.aslist;
 
+import com.example.collection.primitive.IntList;
+import com.example.collection.primitive.IntLists;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
@@ -48,6 +50,22 @@ public class AsListApplication {
         log.info("list:{} size:{} class:{}", list2, list2.size(), list2.get(0).getClass());
     }
 
+    /**
+     * 第三种修复方式：使用IntLists.asList直接把int数组当作int元素的列表，不装箱也不复制。
+     * 它和Arrays.asList一样是固定大小、共享原数组的视图，需要交给只认List<Integer>的方法时用boxed()适配
+     */
+    private static void right3() {
+        int[] arr = {1, 2, 3};
+        IntList list = IntLists.asList(arr);
+        arr[1] = 4;
+        log.info("list:{} size:{} sum:{} boxed:{}", list, list.size(), list.stream().sum(), list.boxed());
+        try {
+            list.addInt(5);
+        } catch (UnsupportedOperationException ex) {
+            log.info("fixed-size view, add is not supported");
+        }
+    }
+
     /**
      * 第二个坑，Arrays.asList 返回的List 不支持增删操作。Arrays.asList 返回的List并不是我
      * 们期望的java.util.ArrayList,而是Arrays的内部类ArrayList。 ArrayList 内部类继承自
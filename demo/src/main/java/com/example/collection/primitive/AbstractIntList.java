@@ -0,0 +1,212 @@
+package com.example.collection.primitive;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+/**
+ * @ClassName: AbstractIntList
+ * @Description: 基于数组的IntList公共实现，数据存放在elements的[offset, offset + size)区间
+ * @Create: 2026-10-20 10:40
+ */
+abstract class AbstractIntList implements IntList {
+
+    abstract int[] elements();
+
+    abstract int offset();
+
+    /**
+     * 结构修改（增删元素）的次数，子列表视图靠它发现父列表已经变了。固定大小的实现不会变，返回0
+     * @return int
+     */
+    int modCount() {
+        return 0;
+    }
+
+    @Override
+    public int getInt(int index) {
+        checkIndex(index);
+        return elements()[offset() + index];
+    }
+
+    @Override
+    public int setInt(int index, int value) {
+        checkIndex(index);
+        int[] elements = elements();
+        int old = elements[offset() + index];
+        elements[offset() + index] = value;
+        return old;
+    }
+
+    @Override
+    public int indexOf(int value) {
+        int[] elements = elements();
+        int offset = offset();
+        for (int i = 0, n = size(); i < n; i++) {
+            if (elements[offset + i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int[] toArray() {
+        int[] result = new int[size()];
+        System.arraycopy(elements(), offset(), result, 0, result.length);
+        return result;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int cursor;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < size();
+            }
+
+            @Override
+            public int nextInt() {
+                if (cursor >= size()) {
+                    throw new NoSuchElementException();
+                }
+                return getInt(cursor++);
+            }
+        };
+    }
+
+    @Override
+    public IntList subList(int from, int to) {
+        checkRange(from, to, size());
+        return new SubList(this, from, to - from);
+    }
+
+    void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+    }
+
+    static void checkRange(int from, int to, int size) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IntList)) {
+            return false;
+        }
+        IntList other = (IntList) o;
+        if (other.size() != size()) {
+            return false;
+        }
+        for (int i = 0, n = size(); i < n; i++) {
+            if (getInt(i) != other.getInt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 和List<Integer>的hashCode算法一致
+     */
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0, n = size(); i < n; i++) {
+            hash = 31 * hash + getInt(i);
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0, n = size(); i < n; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(getInt(i));
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * subList返回的视图
+     * 每次访问都重新向父列表要数组（IntArrayList扩容后数组会换），并和创建时记下的modCount比较，
+     * 父列表增删过元素就抛ConcurrentModificationException，和ArrayList.subList的行为一致，不会读到错位或越界的数据。
+     */
+    private static final class SubList extends AbstractIntList {
+
+        private final AbstractIntList root;
+
+        private final int start;
+
+        private final int size;
+
+        private final int expectedModCount;
+
+        SubList(AbstractIntList root, int start, int size) {
+            this.root = root;
+            this.start = start;
+            this.size = size;
+            this.expectedModCount = root.modCount();
+        }
+
+        @Override
+        int[] elements() {
+            checkForComodification();
+            return root.elements();
+        }
+
+        @Override
+        int offset() {
+            return root.offset() + start;
+        }
+
+        @Override
+        int modCount() {
+            return root.modCount();
+        }
+
+        @Override
+        public int size() {
+            checkForComodification();
+            return size;
+        }
+
+        @Override
+        public void addInt(int value) {
+            throw new UnsupportedOperationException("fixed-size view");
+        }
+
+        @Override
+        public IntStream stream() {
+            int[] elements = elements();
+            int offset = offset();
+            return Arrays.stream(elements, offset, offset + size);
+        }
+
+        @Override
+        public IntList subList(int from, int to) {
+            checkRange(from, to, size());
+            return new SubList(root, start + from, to - from);
+        }
+
+        private void checkForComodification() {
+            if (root.modCount() != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
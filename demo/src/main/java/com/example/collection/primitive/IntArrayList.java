@@ -0,0 +1,130 @@
+package com.example.collection.primitive;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * @ClassName: IntArrayList
+ * @Description: 可以增长的int列表，相当于ArrayList<Integer>去掉了装箱
+ * @Create: 2026-10-20 10:55
+ */
+public class IntArrayList extends AbstractIntList {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[] elements;
+
+    private int size;
+
+    private int modCount;
+
+    public IntArrayList() {
+        this.elements = EMPTY;
+    }
+
+    public IntArrayList(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal Capacity: " + initialCapacity);
+        }
+        this.elements = initialCapacity == 0 ? EMPTY : new int[initialCapacity];
+    }
+
+    /**
+     * 复制一份数组内容，之后和原数组互不影响
+     * @param values 值
+     * @return IntArrayList
+     */
+    public static IntArrayList of(int... values) {
+        IntArrayList list = new IntArrayList();
+        list.elements = values.clone();
+        list.size = values.length;
+        return list;
+    }
+
+    public static IntArrayList copyOf(IntList source) {
+        IntArrayList list = new IntArrayList();
+        list.elements = source.toArray();
+        list.size = list.elements.length;
+        return list;
+    }
+
+    @Override
+    int[] elements() {
+        return elements;
+    }
+
+    @Override
+    int offset() {
+        return 0;
+    }
+
+    @Override
+    int modCount() {
+        return modCount;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void addInt(int value) {
+        modCount++;
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(10, size + (size >> 1)));
+        }
+        elements[size++] = value;
+    }
+
+    public void addAll(IntList values) {
+        int n = values.size();
+        ensureCapacity(size + n);
+        // 先读完再改modCount和size，values是自己的子列表时也能正常追加
+        int start = size;
+        for (int i = 0; i < n; i++) {
+            elements[start + i] = values.getInt(i);
+        }
+        size = start + n;
+        modCount++;
+    }
+
+    /**
+     * 删除指定位置的元素
+     * @param index 下标
+     * @return 被删除的值
+     */
+    public int removeAt(int index) {
+        checkIndex(index);
+        modCount++;
+        int old = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return old;
+    }
+
+    public void clear() {
+        modCount++;
+        size = 0;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(capacity, elements.length + (elements.length >> 1)));
+        }
+    }
+
+    /**
+     * 把容量收缩到实际大小
+     */
+    public void trimToSize() {
+        if (elements.length > size) {
+            elements = size == 0 ? EMPTY : Arrays.copyOf(elements, size);
+        }
+    }
+
+    @Override
+    public IntStream stream() {
+        return Arrays.stream(elements, 0, size);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.collection.primitive;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * @ClassName: IntArrayView
+ * @Description: 固定大小的int[]视图，不复制数组
+ * 行为和Arrays.asList(Integer[])一致：可以set，修改会反映到原数组上，不支持增删；
+ * 区别是它真正把int[]当成了int元素的列表，而不是像Arrays.asList(int[])那样得到只有一个int[]元素的List。
+ * @Create: 2026-10-20 11:05
+ */
+public class IntArrayView extends AbstractIntList {
+
+    private final int[] elements;
+
+    private final int offset;
+
+    private final int size;
+
+    IntArrayView(int[] elements, int offset, int size) {
+        // 不用offset + size比较，两个都接近Integer.MAX_VALUE时相加会溢出成负数
+        if (offset < 0 || size < 0 || size > elements.length - offset) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", size: " + size + ", length: " + elements.length);
+        }
+        this.elements = elements;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    @Override
+    int[] elements() {
+        return elements;
+    }
+
+    @Override
+    int offset() {
+        return offset;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void addInt(int value) {
+        throw new UnsupportedOperationException("fixed-size view");
+    }
+
+    @Override
+    public IntStream stream() {
+        return Arrays.stream(elements, offset, offset + size);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.collection.primitive;
+
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * @ClassName: IntList
+ * @Description: 元素是基本类型int的List
+ * List<Integer>里每个元素是一个16字节的Integer对象加上4到8字节的引用，
+ * IntList直接存int[]，每个元素4字节，读写也不需要装箱拆箱。
+ * 需要交给只认List<Integer>的代码时，用boxed()得到一个适配视图，不复制数据。
+ * @Create: 2026-10-20 10:30
+ */
+public interface IntList {
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int getInt(int index);
+
+    /**
+     * 修改指定位置的元素
+     * @param index 下标
+     * @param value 新值
+     * @return 旧值
+     */
+    int setInt(int index, int value);
+
+    /**
+     * 追加元素，固定大小的实现抛出UnsupportedOperationException
+     * @param value 值
+     */
+    void addInt(int value);
+
+    int indexOf(int value);
+
+    default boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    int[] toArray();
+
+    PrimitiveIterator.OfInt iterator();
+
+    IntStream stream();
+
+    default void forEach(IntConsumer action) {
+        for (int i = 0, n = size(); i < n; i++) {
+            action.accept(getInt(i));
+        }
+    }
+
+    /**
+     * [from, to)区间的视图，和List.subList一样共享底层数据，父列表增删元素后再访问视图抛ConcurrentModificationException
+     * @param from 起始下标（包含）
+     * @param to 结束下标（不包含）
+     * @return IntList
+     */
+    IntList subList(int from, int to);
+
+    /**
+     * 装箱视图，读写都直接作用在这个IntList上
+     * @return List<Integer>
+     */
+    default List<Integer> boxed() {
+        return new IntListAdapter(this);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.collection.primitive;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * @ClassName: IntListAdapter
+ * @Description: 把IntList当作List<Integer>使用的适配视图
+ * get时装箱、set时拆箱，数据仍然存放在原来的IntList里；
+ * 可变长的IntList支持add，固定大小的视图add时抛UnsupportedOperationException。
+ * @Create: 2026-10-20 11:15
+ */
+class IntListAdapter extends AbstractList<Integer> implements RandomAccess {
+
+    private final IntList list;
+
+    IntListAdapter(IntList list) {
+        this.list = list;
+    }
+
+    @Override
+    public Integer get(int index) {
+        return list.getInt(index);
+    }
+
+    @Override
+    public Integer set(int index, Integer element) {
+        return list.setInt(index, element);
+    }
+
+    @Override
+    public boolean add(Integer element) {
+        list.addInt(element);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public Integer remove(int index) {
+        if (list instanceof IntArrayList) {
+            modCount++;
+            return ((IntArrayList) list).removeAt(index);
+        }
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && list.contains((Integer) o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return o instanceof Integer ? list.indexOf((Integer) o) : -1;
+    }
+
+    @Override
+    public int size() {
+        return list.size();
+    }
+}
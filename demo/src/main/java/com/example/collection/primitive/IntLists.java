@@ -0,0 +1,47 @@
+package com.example.collection.primitive;
+
+/**
+ * @ClassName: IntLists
+ * @Description: IntList的工具方法
+ * @Create: 2026-10-20 11:25
+ */
+public final class IntLists {
+
+    /**
+     * 和ArrayList一样，给数组对象头留出余量
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private IntLists() {
+    }
+
+    /**
+     * Arrays.asList(int[])的正确版本：返回以这个数组为存储的固定大小列表，不复制、不装箱
+     * @param values 数组
+     * @return IntList
+     */
+    public static IntList asList(int... values) {
+        return new IntArrayView(values, 0, values.length);
+    }
+
+    /**
+     * 相当于IntStream.rangeClosed(from, to).boxed().collect(toList())，但每个元素只占4字节
+     * @param from 起始值（包含）
+     * @param to 结束值（包含）
+     * @return IntArrayList
+     */
+    public static IntArrayList rangeClosed(int from, int to) {
+        // 用long算元素个数，to - from + 1在范围很宽时会溢出
+        long size = Math.max(0L, (long) to - from + 1);
+        if (size > MAX_ARRAY_SIZE) {
+            throw new IllegalArgumentException("range too large: [" + from + ", " + to + "]");
+        }
+        IntArrayList list = new IntArrayList((int) size);
+        // 按个数循环，to等于Integer.MAX_VALUE时i <= to永远成立
+        int value = from;
+        for (int i = 0; i < size; i++) {
+            list.addInt(value++);
+        }
+        return list;
+    }
+}
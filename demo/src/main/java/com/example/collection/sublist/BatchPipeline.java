@@ -0,0 +1,152 @@
+package com.example.collection.sublist;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * @ClassName: BatchPipeline
+ * @Description: 流式分批处理
+ * xo()先把整个列表放进内存再partition，分段还和可变的原列表绑在一起。这里从Iterator/Stream/Spliterator
+ * 一次只拉一批（batchSize个元素）出来，交给有界的ForkJoinPool并行处理，同时在途的批次不超过maxInFlight，
+ * 达到上限时调用线程先等最早（ordered）或最先完成（unordered）的一批出结果再继续读，
+ * 所以堆上最多只有maxInFlight + 1批数据，和输入总量无关。
+ * 结果交给sink时总在调用线程上，sink不需要考虑线程安全。
+ * 用法：BatchPipeline.<Integer, Long>builder().batchSize(10000).parallelism(4).processor(batch -> ...).build().run(stream, sink)
+ * @Create: 2026-10-20 16:20
+ */
+public class BatchPipeline<T, R> {
+
+    private final int batchSize;
+
+    private final int parallelism;
+
+    private final int maxInFlight;
+
+    private final boolean ordered;
+
+    private final Function<List<T>, R> processor;
+
+    /**
+     * @param batchSize 每批元素个数
+     * @param parallelism 线程数，默认CPU核数
+     * @param maxInFlight 同时在途的批次上限，默认parallelism * 2
+     * @param ordered 是否按输入顺序交付结果，默认true
+     * @param processor 处理一批数据
+     */
+    @Builder
+    private BatchPipeline(int batchSize, int parallelism, int maxInFlight, Boolean ordered, Function<List<T>, R> processor) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        if (processor == null) {
+            throw new IllegalArgumentException("processor is required");
+        }
+        this.batchSize = batchSize;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : this.parallelism * 2;
+        this.ordered = ordered == null || ordered;
+        this.processor = processor;
+    }
+
+    public Summary run(Stream<T> source, Consumer<R> sink) {
+        try (Stream<T> stream = source) {
+            return run(stream.iterator(), sink);
+        }
+    }
+
+    public Summary run(Spliterator<T> source, Consumer<R> sink) {
+        return run(Spliterators.iterator(source), sink);
+    }
+
+    public Summary run(Iterator<T> source, Consumer<R> sink) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("batch-pipeline-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        long begin = System.currentTimeMillis();
+        long batches = 0;
+        long elements = 0;
+        try {
+            Deque<Future<R>> inFlight = new ArrayDeque<>();
+            CompletionService<R> completion = new ExecutorCompletionService<>(pool);
+            int pending = 0;
+            while (source.hasNext()) {
+                List<T> batch = new ArrayList<>(batchSize);
+                while (batch.size() < batchSize && source.hasNext()) {
+                    batch.add(source.next());
+                }
+                batches++;
+                elements += batch.size();
+                if (ordered) {
+                    if (inFlight.size() >= maxInFlight) {
+                        sink.accept(await(inFlight.poll()));
+                    }
+                    inFlight.add(pool.submit(() -> processor.apply(batch)));
+                } else {
+                    if (pending >= maxInFlight) {
+                        sink.accept(await(completion.take()));
+                        pending--;
+                    }
+                    completion.submit(() -> processor.apply(batch));
+                    pending++;
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                sink.accept(await(inFlight.poll()));
+            }
+            for (; pending > 0; pending--) {
+                sink.accept(await(completion.take()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Summary(batches, elements, System.currentTimeMillis() - begin);
+    }
+
+    private static <R> R await(Future<R> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Getter
+    @ToString
+    public static class Summary {
+        private final long batches;
+        private final long elements;
+        private final long tookMs;
+
+        Summary(long batches, long elements, long tookMs) {
+            this.batches = batches;
+            this.elements = elements;
+            this.tookMs = tookMs;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.collection.sublist;
 
 import cn.hutool.core.collection.ListUtil;
+import com.example.collection.primitive.IntArrayList;
+import com.example.collection.primitive.IntList;
+import com.example.collection.primitive.IntLists;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
@@ -15,12 +18,15 @@ import java.util.stream.IntStream;
 @Slf4j
 public class SubListApplication {
     private static List<List<Integer>> data = new ArrayList<>();
+    private static List<IntList> intData = new ArrayList<>();
 
     public static void main(String[] args){
         // oom();
         // oomfix();
 //        right1();
         xo();
+//        scoped();
+//        streaming();
     }
 
     private static void oom() {
@@ -37,6 +43,45 @@ public class SubListApplication {
         }
     }
 
+    /**
+     * 用基本类型列表代替装箱的List<Integer>：每个元素4字节，而Integer对象16字节再加引用约20字节，
+     * 10万元素的临时列表从约2MB降到约400KB；切片同样要复制出来，否则视图仍然引用整个数组
+     */
+    private static void oomfix2() {
+        for (int i = 0; i < 1000; i++) {
+            IntArrayList rawList = IntLists.rangeClosed(1, 100000);
+            intData.add(IntArrayList.copyOf(rawList.subList(0, 1)));
+        }
+        log.info("lists:{} first:{}", intData.size(), intData.get(0));
+    }
+
+    /**
+     * 用SubListViews代替subList：只有一个元素的切片相对父列表太小，创建时就复制出来，
+     * 父列表随后可以回收，效果和oomfix一样，但调用方不用记得自己new ArrayList
+     */
+    private static void oomfix3() {
+        for (int i = 0; i < 1000; i++) {
+            List<Integer> rawList = IntStream.rangeClosed(1, 100000).boxed().collect(Collectors.toList());
+            data.add(SubListViews.subList(rawList, 0, 1));
+        }
+        log.info("lists:{} report:{}", data.size(), SubListViews.retentionReport());
+    }
+
+    /**
+     * 在ViewScope里切片不复制；作用域内查看报告，可以看到小切片拖住的父列表字节数，
+     * 作用域关闭后切片全部分离，报告归零
+     */
+    private static void scoped() {
+        try (ViewScope scope = ViewScope.open()) {
+            for (int i = 0; i < 10; i++) {
+                List<Integer> rawList = IntStream.rangeClosed(1, 100000).boxed().collect(Collectors.toList());
+                data.add(scope.subList(rawList, 0, 1));
+            }
+            log.info("inside scope: {}", SubListViews.retentionReport());
+        }
+        log.info("after close: {}", SubListViews.retentionReport());
+    }
+
     private static void right1() {
         List<Integer> list = IntStream.rangeClosed(1, 10).boxed().collect(Collectors.toList());
         List<Integer> subList = new ArrayList<>(list.subList(1, 4));
@@ -63,4 +108,33 @@ public class SubListApplication {
             System.out.println("-->");
         }
     }
+
+    /**
+     * 500万个元素不放进内存：每次从流里取1万个交给4个线程求和，在途最多8批，
+     * 堆上同时只有几批数据；unordered模式下哪批先算完先交付
+     */
+    private static void streaming() {
+        long[] total = new long[1];
+        BatchPipeline<Integer, Long> pipeline = BatchPipeline.<Integer, Long>builder()
+                .batchSize(10000)
+                .parallelism(4)
+                .maxInFlight(8)
+                .ordered(false)
+                .processor(batch -> batch.stream().mapToLong(Integer::longValue).sum())
+                .build();
+        BatchPipeline.Summary summary = pipeline.run(IntStream.rangeClosed(1, 5_000_000).boxed(), sum -> total[0] += sum);
+        log.info("summary:{} total:{}", summary, total[0]);
+    }
+
+    /**
+     * xo()中partition返回的分段都引用着原列表；SubListViews.partition中占比不超过1/8的分段直接复制，
+     * 之后原列表的增删不再影响分段，也不会抛ConcurrentModificationException
+     */
+    private static void xo2() {
+        List<Integer> list = IntStream.rangeClosed(1, 100).boxed().collect(Collectors.toList());
+        List<List<Integer>> partition = new ArrayList<>(SubListViews.partition(list, 10));
+        partition.remove(0);
+        list.add(101);
+        log.info("partition:{} report:{}", partition, SubListViews.retentionReport());
+    }
 }
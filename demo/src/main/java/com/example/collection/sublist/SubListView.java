@@ -0,0 +1,108 @@
+package com.example.collection.sublist;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * @ClassName: SubListView
+ * @Description: 知道自己相对父列表有多大的只读切片
+ * 和ArrayList.subList一样，未分离时直接读父列表，不复制；
+ * 调用detach后把自己的那一段复制出来并丢掉父列表的引用，父列表就不会再被这个切片拖住无法回收。
+ * 视图是只读的，所以分离前后读到的内容一致，调用方感知不到是否已经复制。
+ * 父列表在分离前发生了增删，和subList一样抛ConcurrentModificationException。
+ * @Create: 2026-10-20 14:10
+ */
+public class SubListView<E> extends AbstractList<E> implements RandomAccess {
+
+    /**
+     * detach可能在其它线程执行（SubListViews.detachSmallViews），两个字段都用volatile；
+     * detach先写detached再清空parent，读到parent为null时detached一定已经可见
+     */
+    private volatile List<E> parent;
+
+    private final int offset;
+
+    private final int size;
+
+    private final int parentSize;
+
+    private volatile List<E> detached;
+
+    SubListView(List<E> parent, int from, int to) {
+        if (from < 0 || to > parent.size() || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + parent.size());
+        }
+        this.parent = parent;
+        this.offset = from;
+        this.size = to - from;
+        this.parentSize = parent.size();
+    }
+
+    @Override
+    public E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        List<E> copy = detached;
+        if (copy != null) {
+            return copy.get(index);
+        }
+        List<E> source = parent;
+        if (source == null) {
+            // 检查detached之后被其它线程分离了
+            return detached.get(index);
+        }
+        checkForComodification(source);
+        return source.get(offset + index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 复制自己的那一段，释放对父列表的引用。已经分离过直接返回
+     * @return 是否这次调用发生了复制
+     */
+    public synchronized boolean detach() {
+        if (detached != null) {
+            return false;
+        }
+        checkForComodification(parent);
+        detached = new ArrayList<>(parent.subList(offset, offset + size));
+        parent = null;
+        return true;
+    }
+
+    public boolean isDetached() {
+        return detached != null;
+    }
+
+    /**
+     * @return 切片大小占父列表的比例，分离后仍返回创建时的比例
+     */
+    public double ratio() {
+        return parentSize == 0 ? 1 : (double) size / parentSize;
+    }
+
+    int parentSize() {
+        return parentSize;
+    }
+
+    /**
+     * @return 还拖住的父列表，已分离返回null
+     */
+    List<E> parent() {
+        return parent;
+    }
+
+    private void checkForComodification(List<E> source) {
+        if (source.size() != parentSize) {
+            throw new ConcurrentModificationException();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.collection.sublist;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @ClassName: SubListViews
+ * @Description: 不会拖住大列表的subList和partition
+ * subList(0, 1)只有一个元素，却引用着10万个元素的父列表，放进长生命周期的集合后父列表永远回收不了，
+ * Hutool的ListUtil.partition返回的也是这样的视图。这里的切片在创建时比较自己和父列表的大小：
+ * 占比不超过detachRatio（默认1/8）的直接复制出来，大切片保持零拷贝；
+ * 需要零拷贝又要用小切片时，在ViewScope里创建，作用域结束时再统一复制。
+ * 还挂在父列表上的切片都登记在这里（弱引用，不影响切片本身的回收），retentionReport统计小切片拖住了多少父列表内存。
+ * @Create: 2026-10-20 14:50
+ */
+public final class SubListViews {
+
+    /**
+     * 压缩指针下一个引用4字节
+     */
+    private static final int REFERENCE_BYTES = 4;
+
+    /**
+     * Integer对象：12字节对象头加4字节value
+     */
+    private static final int DEFAULT_ELEMENT_BYTES = 16;
+
+    private static volatile double detachRatio = 0.125;
+
+    private static final Map<Integer, ViewRef> VIEWS = new ConcurrentHashMap<>();
+
+    private static final ReferenceQueue<SubListView<?>> QUEUE = new ReferenceQueue<>();
+
+    private SubListViews() {
+    }
+
+    public static void setDetachRatio(double ratio) {
+        if (ratio < 0 || ratio > 1) {
+            throw new IllegalArgumentException("ratio must be in [0, 1]: " + ratio);
+        }
+        detachRatio = ratio;
+    }
+
+    public static double getDetachRatio() {
+        return detachRatio;
+    }
+
+    /**
+     * 相对父列表很小的切片立即复制，其它的零拷贝
+     * @param parent 父列表
+     * @param from 起始下标（包含）
+     * @param to 结束下标（不包含）
+     * @return 切片
+     */
+    public static <E> SubListView<E> subList(List<E> parent, int from, int to) {
+        SubListView<E> view = new SubListView<>(parent, from, to);
+        if (view.ratio() <= detachRatio) {
+            view.detach();
+            return view;
+        }
+        return track(view);
+    }
+
+    /**
+     * ListUtil.partition的替代，每一段按subList的规则决定是否复制
+     * @param parent 父列表
+     * @param size 每段大小
+     * @return 分段
+     */
+    public static <E> List<List<E>> partition(List<E> parent, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        List<List<E>> result = new ArrayList<>();
+        for (int from = 0; from < parent.size(); from += size) {
+            result.add(subList(parent, from, Math.min(from + size, parent.size())));
+        }
+        return result;
+    }
+
+    static <E> SubListView<E> track(SubListView<E> view) {
+        expunge();
+        ViewRef ref = new ViewRef(view);
+        VIEWS.put(ref.id, ref);
+        return view;
+    }
+
+    /**
+     * 统计还挂在父列表上的切片，按父列表（同一对象）分组。
+     * 一个父列表上所有存活切片的元素数加起来不超过detachRatio时，认为它只是被小切片拖住，
+     * 没有被切片覆盖的那部分元素计入pinnedBytes。无法知道父列表是否还有切片以外的引用，
+     * 所以这是“如果其它引用都已释放，本可以回收多少”的估算。
+     * @return RetentionReport
+     */
+    public static RetentionReport retentionReport() {
+        expunge();
+        Map<List<?>, long[]> parents = new IdentityHashMap<>();
+        int views = 0;
+        for (ViewRef ref : VIEWS.values()) {
+            SubListView<?> view = ref.get();
+            List<?> parent = view == null ? null : view.parent();
+            if (parent == null) {
+                VIEWS.remove(ref.id);
+                continue;
+            }
+            views++;
+            long[] stat = parents.computeIfAbsent(parent, p -> new long[]{0, 0});
+            stat[0] = view.parentSize();
+            stat[1] += view.size();
+        }
+        int smallViewParents = 0;
+        long parentBytes = 0;
+        long pinnedBytes = 0;
+        for (long[] stat : parents.values()) {
+            parentBytes += estimateBytes(stat[0]);
+            if (stat[1] <= stat[0] * detachRatio) {
+                smallViewParents++;
+                pinnedBytes += estimateBytes(stat[0] - stat[1]);
+            }
+        }
+        return new RetentionReport(views, parents.size(), smallViewParents, parentBytes, pinnedBytes);
+    }
+
+    /**
+     * 把所有相对父列表很小、还没分离的切片复制出来
+     * @return 分离的切片数
+     */
+    public static int detachSmallViews() {
+        int count = 0;
+        for (ViewRef ref : VIEWS.values()) {
+            SubListView<?> view = ref.get();
+            if (view != null && view.ratio() <= detachRatio && view.detach()) {
+                count++;
+            }
+        }
+        expunge();
+        return count;
+    }
+
+    private static long estimateBytes(long elements) {
+        return elements * (REFERENCE_BYTES + DEFAULT_ELEMENT_BYTES);
+    }
+
+    private static void expunge() {
+        Reference<? extends SubListView<?>> ref;
+        while ((ref = QUEUE.poll()) != null) {
+            VIEWS.remove(((ViewRef) ref).id);
+        }
+    }
+
+    private static final class ViewRef extends WeakReference<SubListView<?>> {
+
+        private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+        private final int id = SEQUENCE.incrementAndGet();
+
+        ViewRef(SubListView<?> view) {
+            super(view, QUEUE);
+        }
+    }
+
+    @Getter
+    @ToString
+    public static class RetentionReport {
+        private final int attachedViews;
+        private final int parents;
+        private final int smallViewParents;
+        private final long parentBytes;
+        private final long pinnedBytes;
+
+        RetentionReport(int attachedViews, int parents, int smallViewParents, long parentBytes, long pinnedBytes) {
+            this.attachedViews = attachedViews;
+            this.parents = parents;
+            this.smallViewParents = smallViewParents;
+            this.parentBytes = parentBytes;
+            this.pinnedBytes = pinnedBytes;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.collection.sublist;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @ClassName: ViewScope
+ * @Description: 切片的作用域
+ * 作用域内创建的切片不管多小都不复制，适合在一个方法里临时切一下就用完的场景；
+ * 作用域关闭时，仍然挂在父列表上的切片全部分离，之后即使被放进长生命周期的集合里也不会拖住父列表。
+ * 用法：try (ViewScope scope = ViewScope.open()) { List<Integer> head = scope.subList(list, 0, 1); ... }
+ * @Create: 2026-10-20 14:30
+ */
+public class ViewScope implements AutoCloseable {
+
+    private final List<SubListView<?>> views = new ArrayList<>();
+
+    private boolean closed;
+
+    private ViewScope() {
+    }
+
+    public static ViewScope open() {
+        return new ViewScope();
+    }
+
+    public <E> SubListView<E> subList(List<E> parent, int from, int to) {
+        if (closed) {
+            throw new IllegalStateException("scope closed");
+        }
+        SubListView<E> view = SubListViews.track(new SubListView<>(parent, from, to));
+        views.add(view);
+        return view;
+    }
+
+    public <E> List<List<E>> partition(List<E> parent, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        List<List<E>> result = new ArrayList<>();
+        for (int from = 0; from < parent.size(); from += size) {
+            result.add(subList(parent, from, Math.min(from + size, parent.size())));
+        }
+        return result;
+    }
+
+    /**
+     * 分离作用域内创建的所有切片。某个切片的父列表已经被修改时detach会抛ConcurrentModificationException，
+     * 其余切片照样分离，全部处理完再抛出第一个异常（其它的作为suppressed）
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        RuntimeException failure = null;
+        for (SubListView<?> view : views) {
+            try {
+                view.detach();
+            } catch (RuntimeException ex) {
+                if (failure == null) {
+                    failure = ex;
+                } else {
+                    failure.addSuppressed(ex);
+                }
+            }
+        }
+        views.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
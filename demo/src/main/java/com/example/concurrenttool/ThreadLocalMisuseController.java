@@ -1,12 +1,21 @@
 package com.example.concurrenttool;
 
+import com.example.concurrenttool.context.ContextPropagatingExecutor;
+import com.example.concurrenttool.context.UserContextHolder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.annotation.PreDestroy;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * @ClassName: ThreadLocalMisuseController
@@ -17,6 +26,19 @@ import java.util.Map;
 public class ThreadLocalMisuseController {
     private static final ThreadLocal<Integer> currentUser = ThreadLocal.withInitial(() -> null);
 
+    /**
+     * /threadlocal/context 用的单线程池，直接提交和经ContextPropagatingExecutor提交的任务落在同一个线程上，随控制器一起关闭
+     */
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("threadlocal-worker-%d").setDaemon(true).build());
+
+    private final Executor propagatingWorker = new ContextPropagatingExecutor(worker);
+
+    @PreDestroy
+    public void shutdownWorker() {
+        worker.shutdownNow();
+    }
+
     /**
      * 按理说，在设置用户信息之前第一次获取的值始终应该是 null
      * 但我们要意识到，程序运行在 Tomcat 中
@@ -59,4 +81,21 @@ public class ThreadLocalMisuseController {
         }
     }
 
+    /**
+     * 用户上下文由UserContextFilter在请求开始时绑定、结束时清空，这里不需要set和remove。
+     * 同一个工作线程上先后执行两个任务：经ContextPropagatingExecutor提交的任务能读到当前用户，
+     * 直接提交的任务读到的是null，而不是上一个任务残留的用户
+     * @param userId 用户ID，也可以通过请求头X-User-Id传入
+     * @return 各个线程上读到的用户
+     */
+    @GetMapping("context")
+    public Map<String, Object> context(@RequestParam(value = "userId", required = false) Integer userId) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("request", Thread.currentThread().getName() + ":" + UserContextHolder.current());
+        result.put("propagated", CompletableFuture.supplyAsync(
+                () -> Thread.currentThread().getName() + ":" + UserContextHolder.current(), propagatingWorker).join());
+        result.put("raw", CompletableFuture.supplyAsync(
+                () -> Thread.currentThread().getName() + ":" + UserContextHolder.current(), worker).join());
+        return result;
+    }
 }
@@ -0,0 +1,52 @@
+package com.example.concurrenttool.context;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * @ClassName: ContextPropagatingExecutor
+ * @Description: 把提交线程的用户上下文带到执行线程的Executor装饰器
+ * 提交时拍快照，执行前写入工作线程，执行后恢复工作线程原来的上下文。
+ * 恢复而不是简单清空，是因为CallerRunsPolicy等情况下任务会在提交线程上直接执行，清空会抹掉调用方自己的上下文。
+ * 也可以不包装Executor，单独用wrap包装Runnable/Callable后交给CompletableFuture等。
+ * @Create: 2026-10-20 18:40
+ */
+public class ContextPropagatingExecutor implements Executor {
+
+    private final Executor delegate;
+
+    public ContextPropagatingExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(wrap(command));
+    }
+
+    public static Runnable wrap(Runnable task) {
+        UserContextHolder.Snapshot captured = UserContextHolder.capture();
+        return () -> {
+            UserContextHolder.Snapshot previous = UserContextHolder.capture();
+            UserContextHolder.restore(captured);
+            try {
+                task.run();
+            } finally {
+                UserContextHolder.restore(previous);
+            }
+        };
+    }
+
+    public static <V> Callable<V> wrap(Callable<V> task) {
+        UserContextHolder.Snapshot captured = UserContextHolder.capture();
+        return () -> {
+            UserContextHolder.Snapshot previous = UserContextHolder.capture();
+            UserContextHolder.restore(captured);
+            try {
+                return task.call();
+            } finally {
+                UserContextHolder.restore(previous);
+            }
+        };
+    }
+}
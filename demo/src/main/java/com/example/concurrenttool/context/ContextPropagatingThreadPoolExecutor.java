@@ -0,0 +1,35 @@
+package com.example.concurrenttool.context;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName: ContextPropagatingThreadPoolExecutor
+ * @Description: 把提交线程的用户上下文带到工作线程的ThreadPoolExecutor
+ * ContextPropagatingExecutor只装饰了Executor，拿不到submit、invokeAll这些ExecutorService的方法；
+ * ThreadPoolExecutor的submit、invokeAll、invokeAny最终都走execute，所以只要在execute里用ContextPropagatingExecutor.wrap包装一次，
+ * 所有提交方式都会在提交时拍快照、执行前写入、执行后恢复。
+ * 注意beforeExecute/afterExecute、shutdownNow返回的是包装后的Runnable，remove(Runnable)也找不到原来的任务。
+ * @Create: 2026-10-20 19:10
+ */
+public class ContextPropagatingThreadPoolExecutor extends ThreadPoolExecutor {
+
+    public ContextPropagatingThreadPoolExecutor(int corePoolSize, int maximumPoolSize,
+                                                long keepAliveTime, TimeUnit unit,
+                                                BlockingQueue<Runnable> workQueue,
+                                                ThreadFactory threadFactory,
+                                                RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        super.execute(ContextPropagatingExecutor.wrap(command));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.concurrenttool.context;
+
+/**
+ * @ClassName: UserContext
+ * @Description: 当前线程上的用户上下文
+ * 每个线程只有一个实例，由UserContextHolder创建后一直复用：请求结束时只清空字段，不从ThreadLocal中移除，
+ * 所以热路径上读取上下文不分配对象；字段清空后下一个请求读到的是“未绑定”，不会看到上一个用户的数据。
+ * 实例本身不能跨线程传递，跨线程请用UserContextHolder.capture()得到的快照。
+ * @Create: 2026-10-20 18:10
+ */
+public final class UserContext {
+
+    private boolean bound;
+
+    private int userId;
+
+    UserContext() {
+    }
+
+    public boolean isBound() {
+        return bound;
+    }
+
+    /**
+     * @return 用户ID，未绑定时抛IllegalStateException
+     */
+    public int getUserId() {
+        if (!bound) {
+            throw new IllegalStateException("no user bound to " + Thread.currentThread().getName());
+        }
+        return userId;
+    }
+
+    void bind(int userId) {
+        this.userId = userId;
+        this.bound = true;
+    }
+
+    void clear() {
+        this.userId = 0;
+        this.bound = false;
+    }
+
+    @Override
+    public String toString() {
+        return bound ? String.valueOf(userId) : "null";
+    }
+}
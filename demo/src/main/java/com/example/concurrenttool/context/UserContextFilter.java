@@ -0,0 +1,45 @@
+package com.example.concurrenttool.context;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * @ClassName: UserContextFilter
+ * @Description: 在请求边界上绑定和清理用户上下文
+ * 用户ID取自请求头X-User-Id，没有时取参数userId；请求结束后无论是否异常都会清空，
+ * Tomcat工作线程被下一个请求复用时读不到上一个用户的数据。
+ * @Create: 2026-10-20 18:30
+ */
+@Component
+public class UserContextFilter extends OncePerRequestFilter {
+
+    static final String USER_ID_HEADER = "X-User-Id";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String userId = request.getHeader(USER_ID_HEADER);
+        if (userId == null) {
+            userId = request.getParameter("userId");
+        }
+        UserContextHolder.clear();
+        if (userId != null) {
+            try {
+                UserContextHolder.bind(Integer.parseInt(userId.trim()));
+            } catch (NumberFormatException e) {
+                logger.debug("ignore invalid user id: " + userId);
+            }
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            UserContextHolder.clear();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.concurrenttool.context;
+
+/**
+ * @ClassName: UserContextHolder
+ * @Description: 用户上下文的入口
+ * 绑定和清理由UserContextFilter在请求边界上完成，业务代码只读不写，不用再记得在finally里remove；
+ * 提交到线程池的任务由ContextPropagatingExecutor在提交时capture、执行时restore，执行完恢复工作线程原来的状态。
+ * @Create: 2026-10-20 18:20
+ */
+public final class UserContextHolder {
+
+    private static final ThreadLocal<UserContext> CONTEXT = ThreadLocal.withInitial(UserContext::new);
+
+    private UserContextHolder() {
+    }
+
+    /**
+     * @return 当前线程复用的上下文对象
+     */
+    public static UserContext current() {
+        return CONTEXT.get();
+    }
+
+    public static void bind(int userId) {
+        CONTEXT.get().bind(userId);
+    }
+
+    public static void clear() {
+        CONTEXT.get().clear();
+    }
+
+    /**
+     * 拍一个不可变快照，用于传递到其它线程
+     * @return 快照，当前线程未绑定时返回Snapshot.EMPTY
+     */
+    public static Snapshot capture() {
+        UserContext context = CONTEXT.get();
+        return context.isBound() ? new Snapshot(context.getUserId()) : Snapshot.EMPTY;
+    }
+
+    /**
+     * 把快照写入当前线程的上下文
+     * @param snapshot 快照
+     */
+    public static void restore(Snapshot snapshot) {
+        if (snapshot.bound) {
+            CONTEXT.get().bind(snapshot.userId);
+        } else {
+            CONTEXT.get().clear();
+        }
+    }
+
+    public static final class Snapshot {
+
+        public static final Snapshot EMPTY = new Snapshot();
+
+        private final boolean bound;
+
+        private final int userId;
+
+        private Snapshot() {
+            this.bound = false;
+            this.userId = 0;
+        }
+
+        private Snapshot(int userId) {
+            this.bound = true;
+            this.userId = userId;
+        }
+
+        @Override
+        public String toString() {
+            return bound ? String.valueOf(userId) : "null";
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.concurrenttool.parallel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @ClassName: Blocking
+ * @Description: 用ForkJoinPool.ManagedBlocker包装的阻塞调用
+ * ForkJoinPool的线程数等于并行度，一个线程sleep或等锁，并行度就少一个。通过managedBlock阻塞时，
+ * 池知道这个线程暂时不干活了，会临时补充一个线程保持并行度，阻塞结束后多余的线程自行退出。
+ * 不在ForkJoinPool里调用时等同于直接阻塞，所以可以放心地写在任何线程都可能执行的代码里。
+ * @Create: 2026-10-22 09:50
+ */
+public final class Blocking {
+
+    private static final LongAdder MANAGED_BLOCKS = new LongAdder();
+
+    private Blocking() {
+    }
+
+    public static void sleep(long duration, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(duration);
+        managedBlock(new ForkJoinPool.ManagedBlocker() {
+            @Override
+            public boolean block() throws InterruptedException {
+                long remaining = deadline - System.nanoTime();
+                if (remaining > 0) {
+                    TimeUnit.NANOSECONDS.sleep(remaining);
+                }
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return deadline - System.nanoTime() <= 0;
+            }
+        });
+    }
+
+    /**
+     * 不在ForkJoinPool里、或者锁当前空闲时直接调用tryLock，大概率立即拿到，不必为此补充线程
+     * @return 是否拿到锁
+     */
+    public static boolean tryLock(Lock lock, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!(Thread.currentThread() instanceof ForkJoinWorkerThread)
+                || (lock instanceof ReentrantLock && !((ReentrantLock) lock).isLocked())) {
+            return lock.tryLock(timeout, unit);
+        }
+        boolean[] acquired = new boolean[1];
+        managedBlock(new ForkJoinPool.ManagedBlocker() {
+            private boolean done;
+
+            @Override
+            public boolean block() throws InterruptedException {
+                if (!done) {
+                    acquired[0] = lock.tryLock(timeout, unit);
+                    done = true;
+                }
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return done;
+            }
+        });
+        return acquired[0];
+    }
+
+    /**
+     * @return 在ForkJoinPool工作线程上发生过的managedBlock次数
+     */
+    public static long managedBlocks() {
+        return MANAGED_BLOCKS.sum();
+    }
+
+    private static void managedBlock(ForkJoinPool.ManagedBlocker blocker) throws InterruptedException {
+        if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+            MANAGED_BLOCKS.increment();
+        }
+        ForkJoinPool.managedBlock(blocker);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.concurrenttool.parallel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Supplier;
+
+/**
+ * @ClassName: ParallelPool
+ * @Description: 按名称隔离的ForkJoinPool
+ * parallel()默认跑在整个JVM共享的ForkJoinPool.commonPool()上，并行度只有CPU核数减一，
+ * 一个接口在并行流里sleep或者等锁，所有其它用到并行流、CompletableFuture默认线程池的代码都会跟着排队。
+ * 在某个ForkJoinPool的任务里启动的并行流会使用这个池而不是公共池，所以把整个并行流包在invoke里执行即可隔离：
+ * ParallelPool.of("lockgranularity").run(() -> IntStream.range(0, 1000).parallel().forEach(...))
+ * 池里的阻塞调用再配合Blocking（ManagedBlocker），池会临时补充线程，阻塞不再占用并行度。
+ * 可以用setIsolated(false)临时关闭隔离，对比公共池被拖慢的效果。
+ * @Create: 2026-10-22 09:30
+ */
+public final class ParallelPool {
+
+    private static final Map<String, ParallelPool> POOLS = new ConcurrentHashMap<>();
+
+    private static volatile boolean isolated = true;
+
+    private final String name;
+
+    private final ForkJoinPool pool;
+
+    private ParallelPool(String name, int parallelism) {
+        this.name = name;
+        this.pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("parallel-" + name + "-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * @param name 名称，同名共享一个池
+     * @return 并行度为CPU核数的池
+     */
+    public static ParallelPool of(String name) {
+        return of(name, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param name 名称，同名共享一个池，已经存在时忽略parallelism
+     * @param parallelism 并行度
+     * @return ParallelPool
+     */
+    public static ParallelPool of(String name, int parallelism) {
+        return POOLS.computeIfAbsent(name, k -> new ParallelPool(k, parallelism));
+    }
+
+    public static boolean isIsolated() {
+        return isolated;
+    }
+
+    public static void setIsolated(boolean value) {
+        isolated = value;
+    }
+
+    /**
+     * 在这个池里执行work，work中的并行流也在这个池里执行。调用线程等待结果，异常原样抛出
+     * @param work 工作
+     * @return 结果
+     */
+    public <T> T invoke(Supplier<T> work) {
+        if (!isolated || inPool()) {
+            return work.get();
+        }
+        return pool.submit(work::get).join();
+    }
+
+    public void run(Runnable work) {
+        invoke(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public Map<String, Object> stats() {
+        return stats(pool);
+    }
+
+    /**
+     * @return 所有隔离池和公共池（common）的状态
+     */
+    public static Map<String, Object> snapshotAll() {
+        Map<String, Object> result = new TreeMap<>();
+        POOLS.forEach((name, pool) -> result.put(name, pool.stats()));
+        result.put("common", stats(ForkJoinPool.commonPool()));
+        return result;
+    }
+
+    /**
+     * activeThreadCount是没有空闲的线程，runningThreadCount再减去阻塞在ManagedBlocker上的线程，
+     * poolSize超过parallelism的部分是为阻塞补偿出来的线程；公共池的queuedSubmissionCount持续大于0说明在排队
+     */
+    static Map<String, Object> stats(ForkJoinPool pool) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("parallelism", pool.getParallelism());
+        result.put("poolSize", pool.getPoolSize());
+        result.put("activeThreadCount", pool.getActiveThreadCount());
+        result.put("runningThreadCount", pool.getRunningThreadCount());
+        result.put("queuedSubmissionCount", pool.getQueuedSubmissionCount());
+        result.put("queuedTaskCount", pool.getQueuedTaskCount());
+        result.put("stealCount", pool.getStealCount());
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ParallelPool(" + name + ")";
+    }
+
+    /**
+     * 当前线程已经是这个池的工作线程时直接执行，避免在池内再提交给自己
+     */
+    private boolean inPool() {
+        Thread current = Thread.currentThread();
+        return current instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) current).getPool() == pool;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.concurrenttool.parallel;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName: ParallelPoolController
+ * @Description: 查看隔离池和公共池的状态
+ * 访问/lockgranularity/wrong的同时访问/parallel/probe，公共池上的小任务几乎不用等；
+ * /parallel/isolation?enabled=false关闭隔离后再试一次，小任务要排在sleep的并行流后面。
+ * @Create: 2026-10-22 10:20
+ */
+@RestController
+@RequestMapping("/parallel")
+public class ParallelPoolController {
+
+    @GetMapping("/pools")
+    public Map<String, Object> pools() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("isolated", ParallelPool.isIsolated());
+        result.put("managedBlocks", Blocking.managedBlocks());
+        result.put("pools", ParallelPool.snapshotAll());
+        return result;
+    }
+
+    /**
+     * 往公共池提交一个空任务，测量它等了多久才开始执行。
+     * 用CountDownLatch等待而不是join，避免调用线程自己把任务执行掉，测不出排队时间
+     * @return 排队时间和公共池状态
+     */
+    @GetMapping("/probe")
+    public Map<String, Object> probe() throws InterruptedException {
+        ForkJoinPool common = ForkJoinPool.commonPool();
+        Map<String, Object> before = ParallelPool.stats(common);
+        CountDownLatch started = new CountDownLatch(1);
+        long[] startedAt = new long[1];
+        long submitted = System.nanoTime();
+        common.execute(() -> {
+            startedAt[0] = System.nanoTime();
+            started.countDown();
+        });
+        boolean ran = started.await(30, TimeUnit.SECONDS);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("isolated", ParallelPool.isIsolated());
+        result.put("waitMs", ran ? TimeUnit.NANOSECONDS.toMicros(startedAt[0] - submitted) / 1000.0 : -1);
+        result.put("common", before);
+        return result;
+    }
+
+    @GetMapping("/isolation")
+    public boolean isolation(@RequestParam("enabled") boolean enabled) {
+        ParallelPool.setIsolated(enabled);
+        return enabled;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.loadtest;
+
+import com.example.lock.monitor.LatencyHistogram;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @ClassName: LoadDriver
+ * @Description: 对一个URL施压并记录延迟
+ * 闭环（CLOSED）：clients个客户端各自发完一个请求再发下一个，服务端变慢时发送速率也跟着下降，测的是系统能扛住的吞吐；
+ * 开环（OPEN）：按rate固定速率安排请求，不管前面的请求有没有返回，延迟从“本应发出的时刻”算起，
+ * 客户端忙不过来的排队时间也计入延迟，避免协调遗漏（coordinated omission）让尾延迟看起来很好。
+ * URL里的{client}会被替换成客户端编号，可以让不同客户端带不同的userId。
+ * @Create: 2026-10-21 14:40
+ */
+class LoadDriver {
+
+    enum Mode {CLOSED, OPEN}
+
+    private final String baseUrl;
+    private final Mode mode;
+    private final int clients;
+    private final double rate;
+    private final int timeoutMs;
+
+    LoadDriver(String baseUrl, Mode mode, int clients, double rate, int timeoutMs) {
+        this.baseUrl = baseUrl;
+        this.mode = mode;
+        this.clients = clients;
+        this.rate = rate;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * @param path 请求路径，可以带查询参数
+     * @param seconds 持续时间
+     * @return 请求数、错误数、吞吐和延迟百分位
+     */
+    Map<String, Object> run(String path, int seconds) throws InterruptedException {
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong errors = new AtomicLong();
+        ExecutorService clientPool = Executors.newFixedThreadPool(clients,
+                new ThreadFactoryBuilder().setNameFormat("load-client-%d").setDaemon(true).build());
+        long begin = System.nanoTime();
+        long end = begin + TimeUnit.SECONDS.toNanos(seconds);
+        try {
+            if (mode == Mode.CLOSED) {
+                for (int i = 0; i < clients; i++) {
+                    String url = baseUrl + path.replace("{client}", String.valueOf(i));
+                    clientPool.execute(() -> {
+                        while (System.nanoTime() < end) {
+                            long start = System.nanoTime();
+                            if (!call(url)) {
+                                errors.incrementAndGet();
+                            }
+                            latency.record(System.nanoTime() - start);
+                        }
+                    });
+                }
+            } else {
+                long interval = (long) (1_000_000_000L / rate);
+                long intended = begin;
+                for (int i = 0; intended < end; i++, intended += interval) {
+                    long wait;
+                    while ((wait = intended - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    String url = baseUrl + path.replace("{client}", String.valueOf(i % clients));
+                    long scheduled = intended;
+                    clientPool.execute(() -> {
+                        if (!call(url)) {
+                            errors.incrementAndGet();
+                        }
+                        latency.record(System.nanoTime() - scheduled);
+                    });
+                }
+            }
+        } finally {
+            clientPool.shutdown();
+        }
+        if (!clientPool.awaitTermination(seconds + 60L, TimeUnit.SECONDS)) {
+            clientPool.shutdownNow();
+        }
+        long tookNanos = System.nanoTime() - begin;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("path", path);
+        result.put("mode", mode);
+        result.put("clients", clients);
+        if (mode == Mode.OPEN) {
+            result.put("targetRate", rate);
+        }
+        result.put("requests", latency.count());
+        result.put("errors", errors.get());
+        result.put("throughput", Math.round(latency.count() * 1e10 / tookNanos) / 10.0);
+        result.put("latency", latency.snapshot());
+        return result;
+    }
+
+    /**
+     * 读完响应体再关闭，HttpURLConnection才会复用keep-alive连接
+     * @return 是否2xx
+     */
+    private boolean call(String url) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(timeoutMs);
+            connection.setReadTimeout(timeoutMs);
+            int status = connection.getResponseCode();
+            InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (body != null) {
+                drain(body);
+            }
+            return status >= 200 && status < 300;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return false;
+        }
+    }
+
+    private static void drain(InputStream body) throws IOException {
+        byte[] buffer = new byte[4096];
+        try (InputStream in = body) {
+            while (in.read(buffer) >= 0) {
+                // 丢弃响应体
+            }
+        }
+    }
+}
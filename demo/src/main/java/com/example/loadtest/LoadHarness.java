@@ -0,0 +1,133 @@
+package com.example.loadtest;
+
+import com.example.main.DemoApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName: LoadHarness
+ * @Description: 进程内的HTTP压测工具，代替在浏览器里手动刷新再看日志
+ * 在随机端口上启动DemoApplication（或者用--port指向已经启动的实例），依次对每个路径先预热再压测，
+ * 输出吞吐、p50/p99/p999延迟和Tomcat工作线程的饱和程度，结果写成JSON文件。只访问localhost，不需要网络。
+ * 参数：
+ * --paths=/lockgranularity/wrong,/threadlocal/wrong?userId={client}  逗号分隔
+ * --mode=CLOSED|OPEN  --clients=16  --rate=200（OPEN模式每秒请求数）
+ * --duration=10  --warmup=3（秒）  --timeoutMs=30000  --out=target/loadtest-report.json  --port=
+ * 其它参数原样交给Spring，例如--server.tomcat.threads.max=1可以复现ThreadLocal的用户错乱
+ * 运行：java -cp target/demo-0.0.1-SNAPSHOT-exec.jar -Dloader.main=com.example.loadtest.LoadHarness
+ * org.springframework.boot.loader.PropertiesLauncher --paths=/lockscope/wrong
+ * @Create: 2026-10-21 15:10
+ */
+@Slf4j
+public class LoadHarness {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("paths", "/threadlocal/wrong?userId={client},/threadlocal/right?userId={client}");
+        options.put("mode", "CLOSED");
+        options.put("clients", "16");
+        options.put("rate", "200");
+        options.put("duration", "10");
+        options.put("warmup", "3");
+        options.put("timeoutMs", "30000");
+        options.put("out", "target/loadtest-report.json");
+        options.put("port", "");
+        List<String> springArgs = new ArrayList<>();
+        springArgs.add("--server.port=0");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String key = arg.startsWith("--") && eq > 2 ? arg.substring(2, eq) : null;
+            if (key != null && options.containsKey(key)) {
+                options.put(key, arg.substring(eq + 1));
+            } else {
+                springArgs.add(arg);
+            }
+        }
+
+        ConfigurableApplicationContext context = null;
+        int port;
+        TomcatSaturationSampler sampler = null;
+        if (options.get("port").isEmpty()) {
+            context = SpringApplication.run(DemoApplication.class, springArgs.toArray(new String[0]));
+            TomcatWebServer webServer = (TomcatWebServer) ((ServletWebServerApplicationContext) context).getWebServer();
+            port = webServer.getPort();
+            sampler = TomcatSaturationSampler.of(webServer.getTomcat().getConnector());
+        } else {
+            port = Integer.parseInt(options.get("port"));
+        }
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("tomcat-sampler").setDaemon(true).build());
+        if (sampler != null) {
+            scheduler.scheduleAtFixedRate(sampler, 0, 10, TimeUnit.MILLISECONDS);
+        }
+        try {
+            LoadDriver driver = new LoadDriver("http://localhost:" + port,
+                    LoadDriver.Mode.valueOf(options.get("mode").toUpperCase()),
+                    Integer.parseInt(options.get("clients")),
+                    Double.parseDouble(options.get("rate")),
+                    Integer.parseInt(options.get("timeoutMs")));
+            int warmup = Integer.parseInt(options.get("warmup"));
+            int duration = Integer.parseInt(options.get("duration"));
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (String path : options.get("paths").split(",")) {
+                if (warmup > 0) {
+                    driver.run(path.trim(), warmup);
+                }
+                if (sampler != null) {
+                    sampler.reset();
+                }
+                Map<String, Object> result = driver.run(path.trim(), duration);
+                if (sampler != null) {
+                    result.put("tomcat", sampler.snapshot());
+                }
+                log.info("load result {}", result);
+                results.add(result);
+            }
+            writeReport(options, port, results);
+        } catch (Exception ex) {
+            // 压测或写报告失败时必须以非0退出，否则调用方会把失败当成成功
+            log.error("load test failed", ex);
+            scheduler.shutdownNow();
+            if (context != null) {
+                SpringApplication.exit(context);
+            }
+            System.exit(1);
+        }
+        scheduler.shutdownNow();
+        if (context != null) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    private static void writeReport(Map<String, String> options, int port, List<Map<String, Object>> results) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", LocalDateTime.now().toString());
+        report.put("port", port);
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("options", options);
+        report.put("results", results);
+        File out = new File(options.get("out"));
+        if (out.getAbsoluteFile().getParentFile() != null) {
+            out.getAbsoluteFile().getParentFile().mkdirs();
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(out, report);
+        log.info("report written to {}", out.getAbsolutePath());
+    }
+}
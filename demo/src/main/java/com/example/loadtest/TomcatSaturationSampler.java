@@ -0,0 +1,71 @@
+package com.example.loadtest;
+
+import org.apache.catalina.connector.Connector;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * @ClassName: TomcatSaturationSampler
+ * @Description: 定时采样Tomcat工作线程池，判断压测时瓶颈是不是工作线程数
+ * busyRatio是采样时所有线程都在忙的比例，接近1说明请求在排队等线程，延迟里有一部分是排队时间，
+ * 这时调大server.tomcat.threads.max可能比优化接口本身更有效。
+ * @Create: 2026-10-21 14:20
+ */
+class TomcatSaturationSampler implements Runnable {
+
+    private final ThreadPoolExecutor executor;
+
+    private long samples;
+    private long saturatedSamples;
+    private long activeSum;
+    private int maxActive;
+    private int maxPoolSize;
+    private int maxQueued;
+
+    private TomcatSaturationSampler(ThreadPoolExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @param connector Tomcat连接器
+     * @return 采样器，连接器没有使用Tomcat自带线程池时返回null
+     */
+    static TomcatSaturationSampler of(Connector connector) {
+        Executor executor = connector.getProtocolHandler().getExecutor();
+        return executor instanceof ThreadPoolExecutor ? new TomcatSaturationSampler((ThreadPoolExecutor) executor) : null;
+    }
+
+    @Override
+    public synchronized void run() {
+        int active = executor.getActiveCount();
+        int max = executor.getMaximumPoolSize();
+        samples++;
+        activeSum += active;
+        if (active >= max) {
+            saturatedSamples++;
+        }
+        maxActive = Math.max(maxActive, active);
+        maxPoolSize = Math.max(maxPoolSize, executor.getPoolSize());
+        maxQueued = Math.max(maxQueued, executor.getQueue().size());
+    }
+
+    synchronized void reset() {
+        samples = saturatedSamples = activeSum = 0;
+        maxActive = maxPoolSize = maxQueued = 0;
+    }
+
+    synchronized Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("maxThreads", executor.getMaximumPoolSize());
+        result.put("samples", samples);
+        result.put("meanActive", samples == 0 ? 0 : Math.round(activeSum * 10.0 / samples) / 10.0);
+        result.put("maxActive", maxActive);
+        result.put("maxPoolSize", maxPoolSize);
+        result.put("maxQueued", maxQueued);
+        result.put("busyRatio", samples == 0 ? 0 : Math.round(saturatedSamples * 1000.0 / samples) / 1000.0);
+        return result;
+    }
+}
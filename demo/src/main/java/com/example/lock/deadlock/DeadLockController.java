@@ -1,21 +1,33 @@
 package com.example.lock.deadlock;
 
+import com.example.concurrenttool.parallel.Blocking;
+import com.example.concurrenttool.parallel.ParallelPool;
+import com.example.lock.deadlock.persistence.InventoryWal;
 import com.example.lock.lockscope.LockScopeController;
+import com.example.lock.monitor.LatencyHistogram;
+import com.example.lock.monitor.TrackedLock;
 import lombok.Data;
-import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -34,51 +46,227 @@ public class DeadLockController {
      *    每一种商品默认库存1000个; 然后，初始化10个这样的商品对象来模拟商品清单:
      */
     @Data
-    @RequiredArgsConstructor
     static class Item {
+        private static final AtomicIntegerFieldUpdater<Item> REMAINING =
+                AtomicIntegerFieldUpdater.newUpdater(Item.class, "remaining");
         /**
          * 商品名
          */
         final String name;
         /**
-         * 库存
+         * 库存，加锁扣减和无锁扣减都通过原子操作修改，两条路径可以同时使用
          */
-        int remaining = 1000;
+        volatile int remaining = 1000;
         /**
          * toString不包含这个字段
+         * 使用带加锁顺序跟踪的锁，乱序加锁时立即告警，见 /lockmonitor/order
+         * 等待和持有耗时见 /lockmonitor/latency
          */
         @ToString.Exclude
-        ReentrantLock lock = new ReentrantLock();
+        final ReentrantLock lock;
+        /**
+         * 热点商品的合并扣减，和lock配合使用
+         */
+        @ToString.Exclude
+        final CombiningDecrementer combiner = new CombiningDecrementer(this);
+
+        Item(String name, ReentrantLock lock) {
+            this.name = name;
+            this.lock = lock;
+        }
+
+        /**
+         * 持有锁时扣减库存，和原来的remaining--一样不检查库存是否足够
+         */
+        void decrement() {
+            REMAINING.decrementAndGet(this);
+        }
+
+        /**
+         * 无锁预占一件库存：CAS把remaining减1，库存不足直接返回false，不会阻塞
+         * @return 是否预占成功
+         */
+        boolean tryReserve() {
+            while (true) {
+                int current = remaining;
+                if (current <= 0) {
+                    return false;
+                }
+                if (REMAINING.compareAndSet(this, current, current - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        boolean casRemaining(int expect, int update) {
+            return REMAINING.compareAndSet(this, expect, update);
+        }
+
+        /**
+         * 归还一件预占的库存
+         */
+        void release() {
+            REMAINING.incrementAndGet(this);
+        }
     }
 
     /**
      * 初始化10个商品对象来模拟商品清单:
      */
     public DeadLockController() {
-        IntStream.range(0, 10).forEach(i -> items.put("item" + i, new Item("item" + i)));
+        this(10, 1000);
+    }
+
+    /**
+     * 配置了demo.inventory.wal.enabled=true时使用预写日志，见InventoryWalConfig
+     */
+    @Autowired
+    public DeadLockController(ObjectProvider<InventoryWal> inventoryWal) {
+        this(10, 1000, inventoryWal.getIfAvailable());
+    }
+
+    /**
+     * @param itemCount 商品种类数
+     * @param stock 每种商品的初始库存
+     */
+    DeadLockController(int itemCount, int stock) {
+        this(itemCount, stock, null);
+    }
+
+    /**
+     * @param itemCount 商品种类数
+     * @param stock 每种商品的初始库存
+     * @param wal 预写日志，为null时库存只在内存里；不为null时初始库存减去日志里恢复出的扣减数
+     */
+    DeadLockController(int itemCount, int stock, InventoryWal wal) {
+        this(itemCount, stock, wal, name -> new TrackedLock("deadlock." + name));
     }
 
+    /**
+     * 商品锁用普通ReentrantLock的控制器，见下面的构造方法，虚拟线程的对比（BlockingScenario.ORDER）每次都new一个
+     * @param itemCount 商品种类数
+     * @param stock 每种商品的初始库存
+     * @return DeadLockController
+     */
+    public static DeadLockController untracked(int itemCount, int stock) {
+        return new DeadLockController(itemCount, stock, null, name -> new ReentrantLock());
+    }
+
+    /**
+     * 基准测试每次迭代都new一个控制器，传入普通ReentrantLock的工厂：
+     * 既不会往全局加锁顺序图里不断注册新锁，也不会把压测的耗时混进/lockmonitor/latency，
+     * 加锁和无锁CAS的对比也不包含跟踪和统计的开销
+     * @param itemCount 商品种类数
+     * @param stock 每种商品的初始库存
+     * @param wal 预写日志，可以为null
+     * @param lockFactory 按商品名创建商品锁
+     */
+    DeadLockController(int itemCount, int stock, InventoryWal wal, Function<String, ReentrantLock> lockFactory) {
+        this.wal = wal;
+        Map<String, Long> sold = wal == null ? Collections.emptyMap() : wal.recoveredSold();
+        IntStream.range(0, itemCount).forEach(i -> {
+            Item item = new Item("item" + i, lockFactory.apply("item" + i));
+            item.remaining = (int) (stock - sold.getOrDefault(item.name, 0L));
+            items.put(item.name, item);
+        });
+    }
+
+    /**
+     * 库存扣减的预写日志，下单成功后在释放锁之后写入并等待fsync，
+     * 锁的持有时间不包含写盘，并发的订单通过组提交共享一次fsync
+     */
+    private final InventoryWal wal;
+
     private ConcurrentHashMap<String, Item> items = new ConcurrentHashMap<>();
 
+    /**
+     * 下单的并行流在独立的池里执行，等锁时通过Blocking.tryLock让池补充线程，
+     * /deadlock/wrong里长达十秒的等锁不会拖住JVM共享的公共池
+     */
+    private final ParallelPool parallelPool = ParallelPool.of("deadlock");
+
+    /**
+     * 按照Zipf分布生成商品的累积概率，skew越大流量越集中在前几个商品上
+     * 第k个商品被选中的概率正比于 1/k^skew，skew为0时就是均匀分布
+     * @param skew 倾斜度
+     * @return 累积概率
+     */
+    double[] zipfCdf(double skew){
+        double[] cdf = new double[items.size()];
+        double sum = 0;
+        for (int k = 0; k < cdf.length; k++) {
+            sum += 1 / Math.pow(k + 1, skew);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < cdf.length; k++) {
+            cdf[k] /= sum;
+        }
+        return cdf;
+    }
+
     /**
      * 写一个方法模拟在购物车进行商品选购,每次从商品清单(items 字段)中随机选购三个商品
      * (为了逻辑简单，我们不考虑每次选购多个同类商品的逻辑，购物车中不体现商品数量):
      * @return List<Item>
      */
-    private List<Item> createCart(){
+    List<Item> createCart(){
         return IntStream.rangeClosed(1, 3)
                 .mapToObj(i -> "item" + ThreadLocalRandom.current().nextInt(items.size()))
                 .map(name -> items.get(name)).collect(Collectors.toList());
     }
 
 
-    private boolean createOrder(List<Item> order){
+    /**
+     * 和createCart一样选三件商品，但商品按Zipf分布倾斜，模拟少数爆款承担大部分流量
+     * @param cdf zipfCdf生成的累积概率
+     * @return List<Item>
+     */
+    List<Item> createZipfCart(double[] cdf){
+        return IntStream.rangeClosed(1, 3)
+                .mapToObj(i -> {
+                    double p = ThreadLocalRandom.current().nextDouble();
+                    int k = 0;
+                    while (k < cdf.length - 1 && cdf[k] < p) {
+                        k++;
+                    }
+                    return items.get("item" + k);
+                }).collect(Collectors.toList());
+    }
+
+    List<Item> createZipfCart(double skew){
+        return createZipfCart(zipfCdf(skew));
+    }
+
+    boolean createOrder(List<Item> order){
+        return createOrder(order, 10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * right()里的一次下单：随机选三件商品，按商品名排序后再加锁扣减，
+     * 虚拟线程的对比（BlockingScenario.ORDER）也直接调用它
+     * @return 是否下单成功
+     */
+    public boolean createSortedOrder(){
+        List<Item> cart = createCart().stream()
+                .sorted(Comparator.comparing(Item::getName))
+                .collect(Collectors.toList());
+        return createOrder(cart);
+    }
+
+    /**
+     * 逐个获取购物车中商品的锁，全部拿到后扣减库存
+     * @param order 购物车
+     * @param timeout 获取单把锁的超时时间
+     * @param unit 超时时间单位
+     * @return 是否下单成功
+     */
+    boolean createOrder(List<Item> order, long timeout, TimeUnit unit){
         // 存放所有获得的锁
         List<ReentrantLock> locks = new ArrayList<>();
         for (Item item : order) {
             try {
-                // 获得锁十秒超时
-                if (item.lock.tryLock(10, TimeUnit.SECONDS)){
+                // 获得锁超时，默认十秒
+                if (Blocking.tryLock(item.lock, timeout, unit)){
                     locks.add(item.lock);
                 }else {
                     locks.forEach(ReentrantLock::unlock);
@@ -90,11 +278,74 @@ public class DeadLockController {
         }
         // 锁全部拿到之后执行扣减库存业务逻辑
         try {
-            order.forEach(item -> item.remaining--);
+            order.forEach(Item::decrement);
         }finally {
             locks.forEach(ReentrantLock::unlock);
         }
-        return true;
+        return persist(order);
+    }
+
+    /**
+     * 内存里已经扣减成功的订单写入预写日志，fsync之后才算下单成功；
+     * 写日志失败时归还库存，订单按失败处理，确认成功的扣减一定已经落盘；
+     * 反过来，失败的这一批在日志截断也失败的极端情况下，重启后仍可能被重放（至少一次），见InventoryWal
+     * @param order 购物车
+     * @return 是否持久化成功，没有配置日志时总是true
+     */
+    private boolean persist(List<Item> order){
+        if (wal == null) {
+            return true;
+        }
+        try {
+            // join在ForkJoinPool里等待时会通过managedBlock补充线程，更多订单同时在途，组提交的批次更大
+            wal.append(order.stream().map(Item::getName).collect(Collectors.toList())).join();
+            return true;
+        } catch (RuntimeException ex) {
+            log.error("failed to persist order {}, stock released", order, ex);
+            order.forEach(Item::release);
+            return false;
+        }
+    }
+
+    /**
+     * 不加锁的下单：逐个CAS预占购物车中商品的库存，任何一件库存不足就把已经预占的全部归还。
+     * 和加锁版本一样是全部成功或全部失败，但不需要排序也不会阻塞，不存在死锁，
+     * 两个购物车即使包含相同的商品，也只是在同一个remaining上CAS重试。
+     * 中间状态（部分商品已扣减、还没回滚）对其他线程短暂可见，
+     * 最坏情况下会让另一个订单误判库存不足，对"不超卖"没有影响。
+     * @param order 购物车
+     * @return 是否下单成功
+     */
+    boolean createOrderLockFree(List<Item> order){
+        for (int i = 0; i < order.size(); i++) {
+            if (!order.get(i).tryReserve()) {
+                // 回滚已经预占的商品
+                for (int j = 0; j < i; j++) {
+                    order.get(j).release();
+                }
+                return false;
+            }
+        }
+        return persist(order);
+    }
+
+
+    /**
+     * 合并扣减版本的下单：每件商品交给它的combiner扣减，同一时刻只持有一把锁，
+     * 任何一件库存不足就把已经扣减的商品归还，保证全部成功或全部失败。
+     * @param order 购物车
+     * @return 是否下单成功
+     */
+    boolean createOrderCombining(List<Item> order){
+        for (int i = 0; i < order.size(); i++) {
+            if (!order.get(i).combiner.decrement()) {
+                for (int j = 0; j < i; j++) {
+                    order.get(j).release();
+                }
+                return false;
+            }
+        }
+        return persist(order);
     }
 
 
@@ -115,13 +366,13 @@ public class DeadLockController {
     public long wrong(){
         long begin = System.currentTimeMillis();
         // 并发进行100次下单操作，并统计下单成功次数
-        long success = IntStream.rangeClosed(1, 100).parallel()
+        long success = parallelPool.invoke(() -> IntStream.rangeClosed(1, 100).parallel()
                 .mapToObj(i -> {
                     List<Item> cart = createCart();
                     return createOrder(cart);
                 })
                 .filter(result -> result)
-                .count();
+                .count());
         // success:2, totalRemaining:9994, took:90022ms,
         // items:{item0=DeadLockController.Item(name=item0, remaining=1000),
         // item2=DeadLockController.Item(name=item2, remaining=998),
@@ -160,15 +411,10 @@ public class DeadLockController {
     public long right(){
         long begin = System.currentTimeMillis();
         // 并发进行100次下单操作，并统计下单成功次数
-        long success = IntStream.rangeClosed(1, 100).parallel()
-                .mapToObj(i -> {
-                    List<Item> cart = createCart().stream()
-                            .sorted(Comparator.comparing(Item::getName))
-                            .collect(Collectors.toList());
-                    return createOrder(cart);
-                })
+        long success = parallelPool.invoke(() -> IntStream.rangeClosed(1, 100).parallel()
+                .mapToObj(i -> createSortedOrder())
                 .filter(result -> result)
-                .count();
+                .count());
         log.info("success:{}, totalRemaining:{}, took:{}ms, items:{}",
                 success,
                 items.entrySet().stream().map(item -> item.getValue().remaining).reduce(0, Integer::sum),
@@ -176,4 +422,93 @@ public class DeadLockController {
                 items);
         return success;
     }
+
+    /**
+     * 排序解决了死锁，但每个订单仍然要在每件商品的锁上排队。
+     * 这里换成createOrderLockFree，整个下单过程不拿任何锁。
+     * 下单次数可以通过count调大，方便在高并发下和right对比每秒成功下单数。
+     * @param count 下单次数
+     * @return long
+     */
+    @GetMapping("/lockfree")
+    public long lockFree(@RequestParam(value = "count", defaultValue = "100") int count){
+        long begin = System.nanoTime();
+        long success = parallelPool.invoke(() -> IntStream.rangeClosed(1, count).parallel()
+                .mapToObj(i -> createOrderLockFree(createCart()))
+                .filter(result -> result)
+                .count());
+        long took = System.nanoTime() - begin;
+        log.info("success:{}, totalRemaining:{}, took:{}ms, ordersPerSecond:{}, items:{}",
+                success,
+                items.entrySet().stream().map(item -> item.getValue().remaining).reduce(0, Integer::sum),
+                took / 1_000_000,
+                took == 0 ? success : success * 1_000_000_000L / took,
+                items);
+        return success;
+    }
+
+    /**
+     * 购物车按Zipf分布倾斜到少数爆款上，使用合并扣减下单。
+     * 日志里的averageBatchSize表示每件商品平均一次加锁处理了多少个扣减请求，
+     * 越是热点的商品这个值越大，说明越多的线程不需要自己进入临界区。
+     * @param count 下单次数
+     * @param skew Zipf倾斜度，0为均匀分布
+     * @return long
+     */
+    @GetMapping("/combining")
+    public long combining(@RequestParam(value = "count", defaultValue = "100") int count,
+                          @RequestParam(value = "skew", defaultValue = "1.2") double skew){
+        double[] cdf = zipfCdf(skew);
+        long begin = System.nanoTime();
+        long success = parallelPool.invoke(() -> IntStream.rangeClosed(1, count).parallel()
+                .mapToObj(i -> createOrderCombining(createZipfCart(cdf)))
+                .filter(result -> result)
+                .count());
+        long took = System.nanoTime() - begin;
+        log.info("success:{}, totalRemaining:{}, took:{}ms, ordersPerSecond:{}, averageBatchSize:{}, items:{}",
+                success,
+                items.entrySet().stream().map(item -> item.getValue().remaining).reduce(0, Integer::sum),
+                took / 1_000_000,
+                took == 0 ? success : success * 1_000_000_000L / took,
+                items.values().stream().collect(Collectors.toMap(Item::getName, item -> item.combiner.averageBatchSize())),
+                items);
+        return success;
+    }
+
+    /**
+     * 和right一样排序加锁下单，统计每秒成功下单数和单个订单的耗时分布。
+     * 配置了demo.inventory.wal.enabled=true时每个订单都要等fsync，
+     * 可以对比GROUP_COMMIT、PER_RECORD和不开启日志三种情况；重启后库存从日志恢复，不会回到1000。
+     * @param count 下单次数
+     * @return 成功数、每秒下单数、耗时分布、日志统计
+     */
+    @GetMapping("/durable")
+    public Map<String, Object> durable(@RequestParam(value = "count", defaultValue = "1000") int count){
+        LatencyHistogram latency = new LatencyHistogram();
+        long begin = System.nanoTime();
+        long success = parallelPool.invoke(() -> IntStream.rangeClosed(1, count).parallel()
+                .mapToObj(i -> {
+                    long start = System.nanoTime();
+                    List<Item> cart = createCart().stream()
+                            .sorted(Comparator.comparing(Item::getName))
+                            .collect(Collectors.toList());
+                    boolean result = createOrder(cart);
+                    latency.record(System.nanoTime() - start);
+                    return result;
+                })
+                .filter(result -> result)
+                .count());
+        long took = System.nanoTime() - begin;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("durability", wal == null ? "OFF" : wal.stats().get("flushMode"));
+        result.put("success", success);
+        result.put("ordersPerSecond", took == 0 ? success : success * 1_000_000_000L / took);
+        result.put("latency", latency.snapshot());
+        result.put("totalRemaining", items.values().stream().mapToInt(item -> item.remaining).sum());
+        if (wal != null) {
+            result.put("wal", wal.stats());
+        }
+        log.info("durable: {}", result);
+        return result;
+    }
 }
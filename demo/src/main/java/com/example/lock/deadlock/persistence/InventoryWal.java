@@ -0,0 +1,532 @@
+package com.example.lock.deadlock.persistence;
+
+import com.example.lock.monitor.LatencyHistogram;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * @ClassName: InventoryWal
+ * @Description: 库存扣减的预写日志（WAL），带组提交和快照
+ * 下单成功后把订单里的商品名追加成一条日志记录，fsync之后才算下单完成，进程重启不会丢掉已经确认的扣减。
+ * 每条记录单独fsync的话，每秒下单数受限于磁盘每秒能做多少次fsync，排序加锁省下来的吞吐全被吃掉。
+ * GROUP_COMMIT模式下由一个刷盘线程把同一时刻排队的所有记录一次写入、一次fsync，并发越高每次fsync分摊的订单越多；
+ * PER_RECORD模式每条记录在调用线程上单独写入、fsync，用来对比。
+ * 刷盘线程同时维护一份已落盘的各商品累计扣减数，每snapshotEvery条记录写一次快照（先写临时文件再原子改名），
+ * 然后换一个新的日志段、对目录fsync让改名和新段的目录项落盘，再删除旧的日志段，日志不会无限增长。
+ * 启动时读取快照，再按顺序重放快照之后的日志段；末尾写了一半的记录通过长度和CRC识别，截断后继续追加。
+ * 写入或fsync失败时这一批记录以失败结束，并尽力把日志段截断回这一批之前；截断也失败时，
+ * 这一批在重启后可能被重放（至少一次），之后的记录全部拒绝。
+ * 日志记录格式：长度(int) CRC32(int) 序号(long) 商品数(short) 商品名(UTF)...
+ * @Create: 2026-10-23 14:00
+ */
+@Slf4j
+public class InventoryWal implements Closeable {
+
+    public enum FlushMode {
+        GROUP_COMMIT, PER_RECORD
+    }
+
+    private static final int SNAPSHOT_MAGIC = 0x494E5653;
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final boolean WINDOWS = System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+
+    private final Path dir;
+    private final FlushMode flushMode;
+    private final int snapshotEvery;
+
+    /**
+     * 追加时分配序号、排队用的锁，只保护pending和nextLsn，持有时间很短
+     */
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition hasPending = appendLock.newCondition();
+    private List<Pending> pending = new ArrayList<>();
+    private long nextLsn;
+
+    /**
+     * 写文件、fsync、快照用的锁，同一时刻只有一个写入者
+     */
+    private final Object flushLock = new Object();
+    private FileChannel segment;
+    private long segmentBytes;
+    private final Map<String, Long> durableSold = new TreeMap<>();
+    private long durableLsn;
+    private int recordsSinceSnapshot;
+
+    private final Map<String, Long> recoveredSold;
+    private final long recoveredRecords;
+    private final long snapshotLsn;
+
+    private final Thread flusher;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    private long records;
+    private long fsyncs;
+    private int maxBatch;
+    private long snapshots;
+    private final LatencyHistogram fsyncLatency = new LatencyHistogram();
+
+    /**
+     * 打开目录下的日志，有快照和日志段时先恢复
+     * @param dir 日志目录，不存在时创建
+     * @param flushMode 刷盘方式
+     * @param snapshotEvery 每多少条记录写一次快照
+     */
+    public InventoryWal(Path dir, FlushMode flushMode, int snapshotEvery) throws IOException {
+        if (snapshotEvery <= 0) {
+            throw new IllegalArgumentException("snapshotEvery must be positive: " + snapshotEvery);
+        }
+        this.dir = dir;
+        this.flushMode = flushMode;
+        this.snapshotEvery = snapshotEvery;
+        Files.createDirectories(dir);
+
+        this.snapshotLsn = readSnapshot();
+        this.durableLsn = snapshotLsn;
+        this.recoveredRecords = replaySegments();
+        this.recoveredSold = Collections.unmodifiableMap(new TreeMap<>(durableSold));
+        this.nextLsn = durableLsn;
+        // 重放过日志的话关闭时写一次快照，下次启动不用再重放
+        this.recordsSinceSnapshot = (int) Math.min(Integer.MAX_VALUE, recoveredRecords);
+        openSegment(durableLsn + 1);
+        forceDirectory();
+        log.info("inventory wal recovered from {}: snapshot lsn {}, {} records replayed, sold {}",
+                dir, snapshotLsn, recoveredRecords, recoveredSold);
+
+        if (flushMode == FlushMode.GROUP_COMMIT) {
+            flusher = new Thread(this::flushLoop, "inventory-wal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * @return 启动时从快照和日志恢复出的各商品累计扣减数
+     */
+    public Map<String, Long> recoveredSold() {
+        return recoveredSold;
+    }
+
+    /**
+     * 追加一条订单记录
+     * @param itemNames 订单里扣减的商品，每个扣减一件
+     * @return fsync之后完成；写入失败时以UncheckedIOException结束
+     */
+    public CompletableFuture<Void> append(List<String> itemNames) {
+        byte[] names = encodeNames(itemNames);
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (flushMode == FlushMode.PER_RECORD) {
+            synchronized (flushLock) {
+                if (rejectIfClosed(future)) {
+                    return future;
+                }
+                Pending record;
+                appendLock.lock();
+                try {
+                    record = new Pending(++nextLsn, itemNames, names, future);
+                } finally {
+                    appendLock.unlock();
+                }
+                write(Collections.singletonList(record));
+            }
+            return future;
+        }
+        appendLock.lock();
+        try {
+            // 在appendLock里检查，保证关闭后刷盘线程退出前不会再有记录进入pending
+            if (rejectIfClosed(future)) {
+                return future;
+            }
+            pending.add(new Pending(++nextLsn, itemNames, names, future));
+            hasPending.signal();
+        } finally {
+            appendLock.unlock();
+        }
+        return future;
+    }
+
+    private boolean rejectIfClosed(CompletableFuture<Void> future) {
+        IOException failed = failure;
+        if (failed != null) {
+            future.completeExceptionally(new UncheckedIOException(failed));
+            return true;
+        }
+        if (closed) {
+            future.completeExceptionally(new IllegalStateException("inventory wal is closed"));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return 记录数、fsync次数、平均每次fsync提交的记录数、fsync耗时分布等
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        synchronized (flushLock) {
+            result.put("dir", dir.toString());
+            result.put("flushMode", flushMode);
+            result.put("records", records);
+            result.put("fsyncs", fsyncs);
+            result.put("averageBatch", fsyncs == 0 ? 0 : Math.round(records * 100.0 / fsyncs) / 100.0);
+            result.put("maxBatch", maxBatch);
+            result.put("durableLsn", durableLsn);
+            result.put("snapshots", snapshots);
+            result.put("segmentBytes", segmentBytes);
+            result.put("durableSold", new TreeMap<>(durableSold));
+        }
+        result.put("recoveredFromSnapshotLsn", snapshotLsn);
+        result.put("recoveredRecords", recoveredRecords);
+        result.put("fsyncLatency", fsyncLatency.snapshot());
+        result.put("failed", failure != null);
+        return result;
+    }
+
+    /**
+     * 刷完排队的记录、写一次快照后关闭，下次启动只需要读快照
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        appendLock.lock();
+        try {
+            closed = true;
+            hasPending.signal();
+        } finally {
+            appendLock.unlock();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (flushLock) {
+            if (failure == null && recordsSinceSnapshot > 0) {
+                snapshotAndRoll();
+            }
+            segment.close();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<Pending> batch;
+            appendLock.lock();
+            try {
+                while (pending.isEmpty() && !closed) {
+                    hasPending.awaitUninterruptibly();
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                // 把排队的记录整体换出来，刷盘期间新到的记录进入下一批
+                batch = pending;
+                pending = new ArrayList<>();
+            } finally {
+                appendLock.unlock();
+            }
+            synchronized (flushLock) {
+                write(batch);
+            }
+        }
+    }
+
+    /**
+     * 持有flushLock时调用：一次写入、一次fsync，然后更新已落盘状态、通知等待的订单
+     */
+    private void write(List<Pending> batch) {
+        if (failure != null) {
+            batch.forEach(record -> record.future.completeExceptionally(new UncheckedIOException(failure)));
+            return;
+        }
+        long sizeBefore = segmentBytes;
+        try {
+            int size = 0;
+            for (Pending record : batch) {
+                size += RECORD_HEADER_BYTES + record.payloadLength();
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            CRC32 crc = new CRC32();
+            for (Pending record : batch) {
+                byte[] payload = record.payload();
+                crc.reset();
+                crc.update(payload, 0, payload.length);
+                buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            long begin = System.nanoTime();
+            segment.force(false);
+            fsyncLatency.record(System.nanoTime() - begin);
+            segmentBytes += size;
+            fsyncs++;
+            records += batch.size();
+            maxBatch = Math.max(maxBatch, batch.size());
+            for (Pending record : batch) {
+                apply(record.itemNames);
+                durableLsn = record.lsn;
+            }
+            recordsSinceSnapshot += batch.size();
+        } catch (IOException e) {
+            // write成功、force失败时这一批可能已经在磁盘上，而调用方会按失败处理（归还库存），
+            // 所以截断回这一批之前的长度，避免重启后重放调用方看到失败的订单。
+            // 截断也失败时无法保证，这一批退化为至少一次：重启后可能多扣这些订单的库存
+            try {
+                segment.truncate(sizeBefore);
+                segment.force(false);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+                log.error("inventory wal could not truncate failed batch, {} records may be replayed after restart",
+                        batch.size());
+            }
+            // 写失败后不再接受新的记录，已经确认的记录不受影响
+            log.error("inventory wal write failed, rejecting further records", e);
+            failure = e;
+            batch.forEach(record -> record.future.completeExceptionally(new UncheckedIOException(e)));
+            return;
+        }
+        batch.forEach(record -> record.future.complete(null));
+        if (recordsSinceSnapshot >= snapshotEvery) {
+            try {
+                snapshotAndRoll();
+            } catch (IOException e) {
+                // 快照失败只影响恢复速度，日志段还在，下次再试
+                log.warn("inventory wal snapshot failed", e);
+            }
+        }
+    }
+
+    private void apply(List<String> itemNames) {
+        for (String name : itemNames) {
+            durableSold.merge(name, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * 快照覆盖durableLsn及之前的所有记录，写完后从durableLsn+1开始新的日志段，删除旧的
+     */
+    private void snapshotAndRoll() throws IOException {
+        Path tmp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(durableLsn);
+            out.writeInt(durableSold.size());
+            for (Map.Entry<String, Long> entry : durableSold.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        }
+        byte[] body = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(body.length + 4);
+            buffer.put(body).putInt((int) crc.getValue()).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        segment.close();
+        openSegment(durableLsn + 1);
+        // 改名和新日志段的目录项落盘之后才能删除旧段，否则掉电后可能快照和新段都不在、旧段也删了
+        forceDirectory();
+        for (Path old : listSegments()) {
+            if (segmentStart(old) <= durableLsn) {
+                Files.deleteIfExists(old);
+            }
+        }
+        snapshots++;
+        recordsSinceSnapshot = 0;
+        log.debug("inventory wal snapshot at lsn {}", durableLsn);
+    }
+
+    /**
+     * @return 快照覆盖到的序号，没有快照时为0
+     */
+    private long readSnapshot() throws IOException {
+        Path file = dir.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        byte[] all = Files.readAllBytes(file);
+        if (all.length < 4) {
+            throw new IOException("truncated inventory snapshot " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(all, 0, all.length - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(all, all.length - 4, 4).getInt()) {
+            // 快照是原子改名出来的，校验失败说明文件被改坏了，旧的日志段已经删除，不能假装恢复成功
+            throw new IOException("corrupt inventory snapshot " + file);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(all, 0, all.length - 4))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("not an inventory snapshot " + file);
+            }
+            long lsn = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                durableSold.put(in.readUTF(), in.readLong());
+            }
+            return lsn;
+        }
+    }
+
+    /**
+     * 按起始序号顺序重放日志段，遇到写了一半的记录就截断，后面的内容丢弃
+     * @return 重放的记录数
+     */
+    private long replaySegments() throws IOException {
+        long replayed = 0;
+        boolean truncated = false;
+        for (Path file : listSegments()) {
+            if (truncated) {
+                log.warn("discarding inventory wal segment {} after a torn record", file);
+                Files.delete(file);
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long size = channel.size();
+                long position = 0;
+                ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+                while (true) {
+                    header.clear();
+                    if (position + RECORD_HEADER_BYTES > size || channel.read(header, position) < RECORD_HEADER_BYTES) {
+                        break;
+                    }
+                    header.flip();
+                    int length = header.getInt();
+                    int expectedCrc = header.getInt();
+                    if (length <= 0 || position + RECORD_HEADER_BYTES + length > size) {
+                        break;
+                    }
+                    ByteBuffer payload = ByteBuffer.allocate(length);
+                    channel.read(payload, position + RECORD_HEADER_BYTES);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload.array(), 0, length);
+                    if ((int) crc.getValue() != expectedCrc) {
+                        break;
+                    }
+                    position += RECORD_HEADER_BYTES + length;
+                    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array()))) {
+                        long lsn = in.readLong();
+                        int count = in.readShort();
+                        List<String> names = new ArrayList<>(count);
+                        for (int i = 0; i < count; i++) {
+                            names.add(in.readUTF());
+                        }
+                        // 快照之后才删除旧段，两者之间崩溃时旧段里的记录已经包含在快照里
+                        if (lsn > durableLsn) {
+                            apply(names);
+                            durableLsn = lsn;
+                            replayed++;
+                        }
+                    }
+                }
+                if (position < size) {
+                    log.warn("truncating torn tail of inventory wal segment {} at {} of {} bytes", file, position, size);
+                    channel.truncate(position);
+                    channel.force(true);
+                    truncated = true;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    private void openSegment(long firstLsn) throws IOException {
+        Path file = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstLsn, SEGMENT_SUFFIX));
+        segment = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentBytes = segment.size();
+    }
+
+    /**
+     * 文件的force只保证内容落盘，新建、改名的目录项要对目录本身fsync才能保证掉电后还在。
+     * Windows上不能以读方式打开目录，跳过
+     */
+    private void forceDirectory() throws IOException {
+        if (WINDOWS) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted(Comparator.comparingLong(InventoryWal::segmentStart)).collect(Collectors.toList());
+        }
+    }
+
+    private static long segmentStart(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] encodeNames(List<String> itemNames) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * itemNames.size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeShort(itemNames.size());
+            for (String name : itemNames) {
+                out.writeUTF(name);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static class Pending {
+        final long lsn;
+        final List<String> itemNames;
+        final byte[] names;
+        final CompletableFuture<Void> future;
+
+        Pending(long lsn, List<String> itemNames, byte[] names, CompletableFuture<Void> future) {
+            this.lsn = lsn;
+            this.itemNames = itemNames;
+            this.names = names;
+            this.future = future;
+        }
+
+        int payloadLength() {
+            return 8 + names.length;
+        }
+
+        /**
+         * 序号(long)加上追加时已经编码好的商品数和商品名
+         */
+        byte[] payload() {
+            return ByteBuffer.allocate(payloadLength()).putLong(lsn).put(names).array();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.lock.deadlock.persistence;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * @ClassName: InventoryWalConfig
+ * @Description: 开启库存预写日志（默认关闭）
+ * 配置 demo.inventory.wal.enabled=true 后，DeadLockController启动时从日志恢复库存，每个成功的订单fsync之后才返回。
+ * demo.inventory.wal.dir             日志目录，默认 java.io.tmpdir/demo-inventory-wal
+ * demo.inventory.wal.flush-mode      GROUP_COMMIT（默认）或 PER_RECORD
+ * demo.inventory.wal.snapshot-every  每多少条记录写一次快照，默认10000
+ * @Create: 2026-10-23 15:10
+ */
+@Configuration
+@ConditionalOnProperty(name = "demo.inventory.wal.enabled", havingValue = "true")
+public class InventoryWalConfig {
+
+    @Bean(destroyMethod = "close")
+    public InventoryWal inventoryWal(@Value("${demo.inventory.wal.dir:${java.io.tmpdir}/demo-inventory-wal}") String dir,
+                                     @Value("${demo.inventory.wal.flush-mode:GROUP_COMMIT}") InventoryWal.FlushMode flushMode,
+                                     @Value("${demo.inventory.wal.snapshot-every:10000}") int snapshotEvery) throws IOException {
+        return new InventoryWal(Paths.get(dir), flushMode, snapshotEvery);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.lock.lockgranularity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * @ClassName: AbstractGuardedList
+ * @Description: 三种实现共用的数组存储，这里的方法都不加锁，由子类决定用什么锁包起来
+ * 读方法都以(数组, 大小)为参数，而不是直接读字段，方便StampedLock乐观读先拿到一份快照，
+ * 即使快照不一致（写入时扩容），也只是读到旧数组或者null，不会越界，校验失败后丢弃结果即可。
+ * @Create: 2026-10-19 17:12
+ */
+abstract class AbstractGuardedList<E> implements GuardedList<E> {
+
+    Object[] elements = new Object[16];
+
+    int size;
+
+    void doAdd(E e) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size << 1);
+        }
+        elements[size] = e;
+        size++;
+    }
+
+    static boolean containsIn(Object[] elements, int size, Object o) {
+        int limit = Math.min(size, elements.length);
+        for (int i = 0; i < limit; i++) {
+            if (Objects.equals(o, elements[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E> List<E> rangeOf(Object[] elements, int size, int from, int to) {
+        int end = Math.min(Math.min(to, size), elements.length);
+        int begin = Math.max(0, from);
+        List<E> result = new ArrayList<>(Math.max(0, end - begin));
+        for (int i = begin; i < end; i++) {
+            result.add((E) elements[i]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.lock.lockgranularity;
+
+/**
+ * @ClassName: AppendMode
+ * @Description: /lockgranularity/append 的两种追加方式
+ * @Create: 2026-10-20 09:40
+ */
+public enum AppendMode {
+    /**
+     * 和right()一样，每次add都进synchronized (list)，元素装箱成Integer
+     */
+    SYNCHRONIZED,
+    /**
+     * IntAppendBuffer，每个线程写自己的段，不加锁不装箱
+     */
+    BUFFER
+}
@@ -0,0 +1,32 @@
+package com.example.lock.lockgranularity;
+
+/**
+ * @ClassName: GuardMode
+ * @Description: 共享List的三种保护方式
+ * @Create: 2026-10-19 17:08
+ */
+public enum GuardMode {
+    /**
+     * 读写都用synchronized，和right()里的synchronized (integerList)一样
+     */
+    SYNCHRONIZED,
+    /**
+     * ReentrantReadWriteLock，读读不互斥
+     */
+    READ_WRITE,
+    /**
+     * StampedLock乐观读，读的过程中没有写入就完全不加锁，校验失败再退化为悲观读锁
+     */
+    STAMPED;
+
+    public <E> GuardedList<E> create() {
+        switch (this) {
+            case READ_WRITE:
+                return new ReadWriteGuardedList<>();
+            case STAMPED:
+                return new StampedGuardedList<>();
+            default:
+                return new SynchronizedGuardedList<>();
+        }
+    }
+}
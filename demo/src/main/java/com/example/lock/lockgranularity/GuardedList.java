@@ -0,0 +1,27 @@
+package com.example.lock.lockgranularity;
+
+import java.util.List;
+
+/**
+ * @ClassName: GuardedList
+ * @Description: 被锁保护的共享List，只提供追加和几种读操作，读写用什么锁由实现决定
+ * @Create: 2026-10-19 17:05
+ */
+public interface GuardedList<E> {
+
+    void add(E e);
+
+    int size();
+
+    boolean contains(Object o);
+
+    /**
+     * 范围扫描，返回[from, to)区间元素的副本，超出当前大小的部分忽略
+     * @param from 起始下标（包含）
+     * @param to 结束下标（不包含）
+     * @return 副本，不受后续写入影响
+     */
+    List<E> range(int from, int to);
+
+    GuardMode mode();
+}
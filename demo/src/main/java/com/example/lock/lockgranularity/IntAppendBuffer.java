@@ -0,0 +1,135 @@
+package com.example.lock.lockgranularity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.IntConsumer;
+
+/**
+ * @ClassName: IntAppendBuffer
+ * @Description: 多线程并发追加int的缓冲区，写入不加锁、不装箱
+ * right()里每个parallel线程每追加一个元素都要进一次synchronized (integerList)，
+ * 元素越多、线程越多，锁上的排队就越明显；再加上List<Integer>的装箱，每个元素占16字节的Integer对象外加4到8字节的引用。
+ * 这里每个线程第一次写入时分到一个自己的段（Segment），之后只往自己的段里追加，段内按4096个int分块存储，
+ * 写入线程之间不共享任何可变状态。
+ * 只有读的时候（size、toArray、forEach）才按段的注册顺序把所有段拼起来，同一个线程写入的元素保持写入顺序。
+ * 读和写可以并发：读到的是每个段在读取那一刻已经发布的前缀。
+ * @Create: 2026-10-20 09:40
+ */
+public class IntAppendBuffer {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * 按注册顺序排列的所有段，只在线程第一次写入时修改
+     */
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+
+    /**
+     * 写入线程到段的映射，归缓冲区所有，缓冲区不再被引用时跟着一起回收。
+     * 不用ThreadLocal：每个缓冲区一个ThreadLocal且从不remove，池里的线程会一直持有已经废弃的段。
+     */
+    private final Map<Thread, Segment> owners = new ConcurrentHashMap<>();
+
+    public void add(int value) {
+        Thread thread = Thread.currentThread();
+        Segment segment = owners.get(thread);
+        if (segment == null) {
+            segment = owners.computeIfAbsent(thread, t -> {
+                Segment created = new Segment();
+                segments.add(created);
+                return created;
+            });
+        }
+        segment.add(value);
+    }
+
+    public int size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    /**
+     * 把所有段按顺序合并成一个数组
+     * @return int[]
+     */
+    public int[] toArray() {
+        int[][][] chunks = new int[segments.size()][][];
+        int[] sizes = new int[chunks.length];
+        int total = 0;
+        int i = 0;
+        for (Segment segment : segments) {
+            if (i == chunks.length) {
+                // 快照期间又有新线程注册了段，忽略它们
+                break;
+            }
+            sizes[i] = segment.size;
+            chunks[i] = segment.chunks;
+            total += sizes[i];
+            i++;
+        }
+        int[] result = new int[total];
+        int position = 0;
+        for (int s = 0; s < i; s++) {
+            int remaining = sizes[s];
+            for (int c = 0; remaining > 0; c++) {
+                int length = Math.min(CHUNK_SIZE, remaining);
+                System.arraycopy(chunks[s][c], 0, result, position, length);
+                position += length;
+                remaining -= length;
+            }
+        }
+        return result;
+    }
+
+    public void forEach(IntConsumer action) {
+        for (Segment segment : segments) {
+            int size = segment.size;
+            int[][] chunks = segment.chunks;
+            for (int i = 0; i < size; i++) {
+                action.accept(chunks[i >>> CHUNK_BITS][i & CHUNK_MASK]);
+            }
+        }
+    }
+
+    /**
+     * 单个线程独占写入的段
+     * 写入顺序：先把值写进块里（需要时先发布新的块数组），最后才用lazySet发布size，
+     * 读线程先读size再读chunks，保证能看到size范围内的所有元素。
+     */
+    private static final class Segment {
+
+        private static final AtomicIntegerFieldUpdater<Segment> SIZE =
+                AtomicIntegerFieldUpdater.newUpdater(Segment.class, "size");
+
+        volatile int[][] chunks = new int[4][];
+
+        volatile int size;
+
+        void add(int value) {
+            int n = size;
+            int chunk = n >>> CHUNK_BITS;
+            int[][] current = chunks;
+            if (chunk == current.length) {
+                int[][] grown = new int[current.length << 1][];
+                System.arraycopy(current, 0, grown, 0, current.length);
+                current = grown;
+                current[chunk] = new int[CHUNK_SIZE];
+                chunks = current;
+            } else if (current[chunk] == null) {
+                current[chunk] = new int[CHUNK_SIZE];
+                // 重新发布一次，让读线程看到新分配的块
+                chunks = current;
+            }
+            current[chunk][n & CHUNK_MASK] = value;
+            SIZE.lazySet(this, n + 1);
+        }
+    }
+}
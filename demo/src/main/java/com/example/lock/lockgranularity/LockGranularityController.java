@@ -1,13 +1,22 @@
 package com.example.lock.lockgranularity;
 
+import com.example.concurrenttool.parallel.Blocking;
+import com.example.concurrenttool.parallel.ParallelPool;
+import com.example.lock.monitor.LockMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.IntStream;
 
 /**
@@ -25,17 +34,85 @@ public class LockGranularityController {
      */
     private final List<Integer> integerList = new ArrayList<>();
 
+    /**
+     * 两种加锁方式的等待和持有耗时，见 /lockmonitor/latency
+     */
+    private final LockMetrics thisLockMetrics;
+    private final LockMetrics listLockMetrics;
+
+    /**
+     * 每种保护方式各一份共享List，见 /lockgranularity/guarded/*
+     */
+    private final Map<GuardMode, GuardedList<Integer>> guardedLists = new EnumMap<>(GuardMode.class);
+
+    /**
+     * 所有并行流都在这个独立的池里执行，slow()的sleep不会占用JVM共享的公共池，见 /parallel/pools
+     */
+    private final ParallelPool parallelPool = ParallelPool.of("lockgranularity");
+
+    public LockGranularityController() {
+        this("lockgranularity");
+    }
+
+    /**
+     * 虚拟线程的对比（BlockingScenario）每次都new一个控制器，用单独的前缀，耗时统计不和这个接口的混在一起
+     * @param metricsPrefix 锁统计名称的前缀
+     */
+    public LockGranularityController(String metricsPrefix) {
+        thisLockMetrics = LockMetrics.of(metricsPrefix + ".this");
+        listLockMetrics = LockMetrics.of(metricsPrefix + ".integerList");
+        for (GuardMode mode : GuardMode.values()) {
+            guardedLists.put(mode, mode.create());
+        }
+    }
+
     /**
      * 不涉及资源共享的慢方法
+     * 通过Blocking.sleep睡眠，在ForkJoinPool里执行时池会补充线程，睡眠的线程不占并行度
      */
     private void slow(){
         try {
-            TimeUnit.MILLISECONDS.sleep(10);
+            Blocking.sleep(10, TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * 加锁粒度太粗：slow方法和操作List的代码一起放进了synchronized代码块
+     * 虚拟线程的对比（BlockingScenario）也直接调用它
+     * @param i 要加入List的值
+     */
+    public void coarseAdd(int i){
+        long begin = System.nanoTime();
+        synchronized (this){
+            long acquired = thisLockMetrics.acquired(begin);
+            try {
+                slow();
+                integerList.add(i);
+            } finally {
+                thisLockMetrics.released(acquired);
+            }
+        }
+    }
+
+    /**
+     * 只针对List共享资源加锁
+     * @param i 要加入List的值
+     */
+    public void fineAdd(int i){
+        slow();
+        long begin = System.nanoTime();
+        synchronized (integerList){
+            long acquired = listLockMetrics.acquired(begin);
+            try {
+                integerList.add(i);
+            } finally {
+                listLockMetrics.released(acquired);
+            }
+        }
+    }
+
     /**
      * 加锁要考虑锁的粒度和场景问题
      * 方法上加synchronized关键字实现加锁确实简单,也因此我曾看到一些业务代码中帆乎所
@@ -58,13 +135,7 @@ public class LockGranularityController {
     @GetMapping("/wrong")
     public int wrong(){
         long begin = System.currentTimeMillis();
-        IntStream.rangeClosed(1, 1000).parallel().forEach(i ->{
-            // 加锁粒度太粗
-            synchronized (this){
-                slow();
-                integerList.add(i);
-            }
-        });
+        parallelPool.run(() -> IntStream.rangeClosed(1, 1000).parallel().forEach(this::coarseAdd));
         log.info("responseWrong:{}", System.currentTimeMillis() - begin);
         return integerList.size();
     }
@@ -81,19 +152,143 @@ public class LockGranularityController {
      * ●JDK里ReentrantLock和ReentrantReadWriteLock都提供了公平锁的版本，在没有明确
      * 需求的情况下不要轻易开启公平锁特性,在任务很轻的情况下开启公平锁可能会让性能下降
      * 上百倍。
+     * 这几种锁的实际对比见GuardedList的三种实现和 /lockgranularity/guarded/mixed。
      * @return int
      */
     @GetMapping("/right")
     public int right(){
         long begin = System.currentTimeMillis();
-        IntStream.rangeClosed(1, 1000).parallel().forEach(i -> {
-            slow();
-            // 只针对List共享资源加锁
-            synchronized (integerList){
-                integerList.add(i);
-            }
-        });
+        parallelPool.run(() -> IntStream.rangeClosed(1, 1000).parallel().forEach(this::fineAdd));
         log.info("response:{}", System.currentTimeMillis() - begin);
         return integerList.size();
     }
+
+    /**
+     * 和right()一样并发执行1000次slow()加追加，只是List换成了指定保护方式的GuardedList
+     * @param mode 保护方式
+     * @return int
+     */
+    @GetMapping("/guarded/add")
+    public int guardedAdd(@RequestParam(value = "mode", defaultValue = "STAMPED") GuardMode mode){
+        GuardedList<Integer> list = guardedLists.get(mode);
+        parallelPool.run(() -> IntStream.rangeClosed(1, 1000).parallel().forEach(i -> {
+            slow();
+            list.add(i);
+        }));
+        return list.size();
+    }
+
+    @GetMapping("/guarded/size")
+    public int guardedSize(@RequestParam(value = "mode", defaultValue = "STAMPED") GuardMode mode){
+        return guardedLists.get(mode).size();
+    }
+
+    @GetMapping("/guarded/contains")
+    public boolean guardedContains(@RequestParam(value = "mode", defaultValue = "STAMPED") GuardMode mode,
+                                   @RequestParam("value") int value){
+        return guardedLists.get(mode).contains(value);
+    }
+
+    @GetMapping("/guarded/range")
+    public List<Integer> guardedRange(@RequestParam(value = "mode", defaultValue = "STAMPED") GuardMode mode,
+                                      @RequestParam(value = "from", defaultValue = "0") int from,
+                                      @RequestParam(value = "to", defaultValue = "100") int to){
+        return guardedLists.get(mode).range(from, to);
+    }
+
+    /**
+     * 读写混合负载：在一个预先放入preload个元素的新List上并发执行ops次操作，
+     * readPercent的操作是读（size、contains、100个元素的range扫描各占三分之一），其余是追加。
+     * 分别用95和50的读比例对比三种保护方式，看乐观读和读写锁在什么情况下划算：
+     * /lockgranularity/guarded/mixed?mode=STAMPED&readPercent=95
+     * @param mode 保护方式
+     * @param readPercent 读操作百分比
+     * @param ops 操作次数
+     * @param preload 预先放入的元素个数
+     * @return 耗时和每秒操作数
+     */
+    @GetMapping("/guarded/mixed")
+    public Map<String, Object> guardedMixed(@RequestParam(value = "mode", defaultValue = "STAMPED") GuardMode mode,
+                                            @RequestParam(value = "readPercent", defaultValue = "95") int readPercent,
+                                            @RequestParam(value = "ops", defaultValue = "200000") int ops,
+                                            @RequestParam(value = "preload", defaultValue = "10000") int preload){
+        GuardedList<Integer> list = mode.create();
+        IntStream.range(0, preload).forEach(list::add);
+        LongAdder reads = new LongAdder();
+        long begin = System.nanoTime();
+        parallelPool.run(() -> IntStream.range(0, ops).parallel().forEach(i -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextInt(100) < readPercent) {
+                reads.increment();
+                switch (random.nextInt(3)) {
+                    case 0:
+                        list.size();
+                        break;
+                    case 1:
+                        list.contains(random.nextInt(preload * 2 + 1));
+                        break;
+                    default:
+                        int from = random.nextInt(preload + 1);
+                        list.range(from, from + 100);
+                }
+            } else {
+                list.add(i);
+            }
+        }));
+        long took = System.nanoTime() - begin;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", mode);
+        result.put("readPercent", readPercent);
+        result.put("reads", reads.sum());
+        result.put("writes", ops - reads.sum());
+        result.put("tookMs", took / 1_000_000);
+        result.put("opsPerSecond", took == 0 ? ops : ops * 1_000_000_000L / took);
+        log.info("guarded mixed: {}", result);
+        return result;
+    }
+
+    /**
+     * 去掉slow()，只看大量并发追加时锁和装箱本身的开销：
+     * SYNCHRONIZED 和right()一样，每次add都进synchronized (list)，元素装箱成Integer
+     * BUFFER       IntAppendBuffer，每个线程写自己的段，不加锁不装箱，读取时才合并
+     * 例如 /lockgranularity/append?mode=BUFFER&count=10000000
+     * @param mode SYNCHRONIZED或BUFFER
+     * @param count 追加的元素个数
+     * @return 元素个数、校验和以及耗时
+     */
+    @GetMapping("/append")
+    public Map<String, Object> append(@RequestParam(value = "mode", defaultValue = "BUFFER") AppendMode mode,
+                                      @RequestParam(value = "count", defaultValue = "10000000") int count){
+        long begin = System.nanoTime();
+        int size;
+        long sum = 0;
+        if (mode == AppendMode.SYNCHRONIZED) {
+            List<Integer> list = new ArrayList<>();
+            parallelPool.run(() -> IntStream.range(0, count).parallel().forEach(i -> {
+                synchronized (list) {
+                    list.add(i);
+                }
+            }));
+            size = list.size();
+            for (Integer value : list) {
+                sum += value;
+            }
+        } else {
+            IntAppendBuffer buffer = new IntAppendBuffer();
+            parallelPool.run(() -> IntStream.range(0, count).parallel().forEach(buffer::add));
+            int[] values = buffer.toArray();
+            size = values.length;
+            for (int value : values) {
+                sum += value;
+            }
+        }
+        long took = System.nanoTime() - begin;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", mode);
+        result.put("size", size);
+        result.put("sum", sum);
+        result.put("tookMs", took / 1_000_000);
+        log.info("append: {}", result);
+        return result;
+    }
 }
@@ -0,0 +1,63 @@
+package com.example.lock.lockgranularity;
+
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @ClassName: ReadWriteGuardedList
+ * @Description: 读用读锁、写用写锁，读多写少时多个读线程可以同时扫描
+ * 使用非公平模式，理由见right()的注释：没有明确需求不要开启公平锁
+ * @Create: 2026-10-19 17:24
+ */
+class ReadWriteGuardedList<E> extends AbstractGuardedList<E> {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+
+    @Override
+    public void add(E e) {
+        writeLock.lock();
+        try {
+            doAdd(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        readLock.lock();
+        try {
+            return size;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        readLock.lock();
+        try {
+            return containsIn(elements, size, o);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<E> range(int from, int to) {
+        readLock.lock();
+        try {
+            return rangeOf(elements, size, from, to);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public GuardMode mode() {
+        return GuardMode.READ_WRITE;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.lock.lockgranularity;
+
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * @ClassName: StampedGuardedList
+ * @Description: StampedLock乐观读
+ * 读之前拿一个戳，不加锁直接读一份(数组, 大小)快照，读完用validate检查期间有没有写入，
+ * 没有写入就直接返回结果，整个过程不修改任何共享状态，读线程之间连缓存行都不争抢；
+ * 校验失败说明读的过程中有写入，退化为悲观读锁重新读一次。
+ * 冲突越少收益越大，写入频繁时大量乐观读失败重试，反而不如读写锁。
+ * @Create: 2026-10-19 17:30
+ */
+class StampedGuardedList<E> extends AbstractGuardedList<E> {
+
+    private final StampedLock lock = new StampedLock();
+
+    @Override
+    public void add(E e) {
+        long stamp = lock.writeLock();
+        try {
+            doAdd(e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int result = size;
+        if (lock.validate(stamp)) {
+            return result;
+        }
+        stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        long stamp = lock.tryOptimisticRead();
+        boolean result = containsIn(elements, size, o);
+        if (lock.validate(stamp)) {
+            return result;
+        }
+        stamp = lock.readLock();
+        try {
+            return containsIn(elements, size, o);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<E> range(int from, int to) {
+        long stamp = lock.tryOptimisticRead();
+        List<E> result = rangeOf(elements, size, from, to);
+        if (lock.validate(stamp)) {
+            return result;
+        }
+        stamp = lock.readLock();
+        try {
+            return rangeOf(elements, size, from, to);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public GuardMode mode() {
+        return GuardMode.STAMPED;
+    }
+}
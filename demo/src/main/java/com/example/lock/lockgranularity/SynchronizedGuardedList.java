@@ -0,0 +1,36 @@
+package com.example.lock.lockgranularity;
+
+import java.util.List;
+
+/**
+ * @ClassName: SynchronizedGuardedList
+ * @Description: 读写都进同一个synchronized，读和读之间也互斥
+ * @Create: 2026-10-19 17:20
+ */
+class SynchronizedGuardedList<E> extends AbstractGuardedList<E> {
+
+    @Override
+    public synchronized void add(E e) {
+        doAdd(e);
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized boolean contains(Object o) {
+        return containsIn(elements, size, o);
+    }
+
+    @Override
+    public synchronized List<E> range(int from, int to) {
+        return rangeOf(elements, size, from, to);
+    }
+
+    @Override
+    public GuardMode mode() {
+        return GuardMode.SYNCHRONIZED;
+    }
+}
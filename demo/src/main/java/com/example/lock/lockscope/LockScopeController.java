@@ -1,11 +1,16 @@
 package com.example.lock.lockscope;
 
+import com.example.concurrenttool.parallel.ParallelPool;
+import com.example.lock.lockscope.counter.Counter;
+import com.example.lock.lockscope.counter.CounterType;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.stream.IntStream;
 
 /**
@@ -17,6 +22,11 @@ import java.util.stream.IntStream;
 @RequestMapping("/lockscope")
 public class LockScopeController {
 
+    /**
+     * 并行流在独立的池里执行，100万次累加不会占满JVM共享的公共池
+     */
+    private final ParallelPool parallelPool = ParallelPool.of("lockscope");
+
     /**
      *
      * @param count default 1000000次
@@ -35,10 +45,38 @@ public class LockScopeController {
     public int wrong(@RequestParam(value = "count", defaultValue = "1000000") int count){
         Data.reset();
         // 多线程循环一定次数调用Data类不同实例的Wrong方法
-        IntStream.rangeClosed(1, count).parallel().forEach(i -> new Data().wrong());
+        parallelPool.run(() -> IntStream.rangeClosed(1, count).parallel().forEach(i -> new Data().wrong()));
         // 修正后输出正确的100万
-        // IntStream.rangeClosed(1, count).parallel().forEach(i -> new Data().right());
+        // parallelPool.run(() -> IntStream.rangeClosed(1, count).parallel().forEach(i -> new Data().right()));
         return Data.getCounter();
     }
 
+    /**
+     * 锁的层面找对之后，right方法里这把静态锁又成了新的瓶颈：
+     * 100万次累加全部排队进入同一个synchronized代码块，核数越多，争抢越激烈。
+     * 这里把计数逻辑抽成Counter，按请求参数选择不同的实现来对比吞吐：
+     * SYNCHRONIZED 一把全局锁，等价于Data.right()
+     * ATOMIC_LONG  单个CAS变量，没有阻塞但所有核都在抢同一个缓存行
+     * LONG_ADDER   JDK的分段累加
+     * STRIPED      手写的缓存行填充分段计数器
+     * @param type 计数策略
+     * @param count default 1000000次
+     * @return 计数结果、耗时以及每秒累加次数
+     */
+    @GetMapping("/counter")
+    public Map<String, Object> counter(@RequestParam(value = "type", defaultValue = "LONG_ADDER") CounterType type,
+                                       @RequestParam(value = "count", defaultValue = "1000000") int count) {
+        Counter counter = type.create();
+        long begin = System.nanoTime();
+        parallelPool.run(() -> IntStream.rangeClosed(1, count).parallel().forEach(i -> counter.increment()));
+        long took = System.nanoTime() - begin;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("type", type);
+        result.put("counter", counter.get());
+        result.put("tookMs", took / 1_000_000);
+        result.put("incrementsPerSecond", took == 0 ? count : count * 1_000_000_000L / took);
+        log.info("counter type:{}, result:{}", type, result);
+        return result;
+    }
+
 }
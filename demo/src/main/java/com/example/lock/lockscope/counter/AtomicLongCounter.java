@@ -0,0 +1,28 @@
+package com.example.lock.lockscope.counter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ClassName: AtomicLongCounter
+ * @Description: 基于CAS的无锁计数，但所有线程仍然在同一个缓存行上自旋重试
+ * @Create: 2026-10-18 10:18
+ */
+public class AtomicLongCounter implements Counter {
+
+    private final AtomicLong counter = new AtomicLong();
+
+    @Override
+    public void increment() {
+        counter.incrementAndGet();
+    }
+
+    @Override
+    public long get() {
+        return counter.get();
+    }
+
+    @Override
+    public void reset() {
+        counter.set(0);
+    }
+}
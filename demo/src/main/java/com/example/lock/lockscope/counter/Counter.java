@@ -0,0 +1,25 @@
+package com.example.lock.lockscope.counter;
+
+/**
+ * @ClassName: Counter
+ * @Description: 计数器抽象，不同实现代表不同的并发累加策略
+ * @Create: 2026-10-18 10:12
+ */
+public interface Counter {
+
+    /**
+     * 计数加一
+     */
+    void increment();
+
+    /**
+     * 当前计数值。对于分段累加的实现，并发写入时读到的只是一个近似快照
+     * @return long
+     */
+    long get();
+
+    /**
+     * 计数清零，调用方需要保证此时没有并发写入
+     */
+    void reset();
+}
@@ -0,0 +1,37 @@
+package com.example.lock.lockscope.counter;
+
+import java.util.function.Supplier;
+
+/**
+ * @ClassName: CounterType
+ * @Description: 可选的计数策略，LockScopeController按请求参数挑选
+ * @Create: 2026-10-18 10:40
+ */
+public enum CounterType {
+    /**
+     * 一把全局锁
+     */
+    SYNCHRONIZED(SynchronizedCounter::new),
+    /**
+     * 单个CAS变量
+     */
+    ATOMIC_LONG(AtomicLongCounter::new),
+    /**
+     * JDK的LongAdder
+     */
+    LONG_ADDER(LongAdderCounter::new),
+    /**
+     * 缓存行填充的分段计数器
+     */
+    STRIPED(StripedCounter::new);
+
+    private final Supplier<Counter> factory;
+
+    CounterType(Supplier<Counter> factory) {
+        this.factory = factory;
+    }
+
+    public Counter create() {
+        return factory.get();
+    }
+}
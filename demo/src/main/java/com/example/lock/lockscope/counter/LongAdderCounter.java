@@ -0,0 +1,28 @@
+package com.example.lock.lockscope.counter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @ClassName: LongAdderCounter
+ * @Description: JDK自带的分段累加器，竞争激烈时自动把热点分散到多个Cell上
+ * @Create: 2026-10-18 10:20
+ */
+public class LongAdderCounter implements Counter {
+
+    private final LongAdder counter = new LongAdder();
+
+    @Override
+    public void increment() {
+        counter.increment();
+    }
+
+    @Override
+    public long get() {
+        return counter.sum();
+    }
+
+    @Override
+    public void reset() {
+        counter.reset();
+    }
+}
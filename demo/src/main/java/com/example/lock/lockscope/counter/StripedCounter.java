@@ -0,0 +1,99 @@
+package com.example.lock.lockscope.counter;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @ClassName: StripedCounter
+ * @Description: 手写的分段计数器，每个槽位独占一个缓存行，避免伪共享
+ * 思路和LongAdder一样：把一个热点拆成多个槽位，线程按照自己的探针值落到不同槽位上累加，
+ * 读的时候再把所有槽位加起来。区别在于这里的槽位数量在构造时就确定好（默认取CPU核数向上
+ * 取2的幂），而且每个槽位之间用7个long做填充，保证相邻槽位不会落在同一个64字节缓存行里。
+ * JDK8里@Contended需要额外的JVM参数才能生效，所以这里直接用数组下标做填充。
+ * @Create: 2026-10-18 10:26
+ */
+public class StripedCounter implements Counter {
+
+    /**
+     * 一个缓存行64字节，正好8个long
+     */
+    private static final int PADDING = 8;
+
+    private final int mask;
+
+    private final AtomicLongArray cells;
+
+    public StripedCounter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public StripedCounter(int stripes) {
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        // 首尾各多留一个缓存行，避免和数组对象头或者相邻对象共享缓存行
+        this.cells = new AtomicLongArray((size + 2) * PADDING);
+    }
+
+    /**
+     * 每个线程固定落到一个槽位上，CAS失败说明有别的线程和自己撞到了同一个槽位，换一个槽位再试
+     */
+    @Override
+    public void increment() {
+        int probe = probe();
+        while (true) {
+            int index = slot(probe);
+            long current = cells.get(index);
+            if (cells.compareAndSet(index, current, current + 1)) {
+                return;
+            }
+            probe = rehash();
+        }
+    }
+
+    @Override
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            sum += cells.get(slot(i));
+        }
+        return sum;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i <= mask; i++) {
+            cells.set(slot(i), 0);
+        }
+    }
+
+    public int stripes() {
+        return mask + 1;
+    }
+
+    private int slot(int probe) {
+        return ((probe & mask) + 1) * PADDING;
+    }
+
+    private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(
+            () -> new int[]{ThreadLocalRandom.current().nextInt() | 1});
+
+    private static int probe() {
+        return PROBE.get()[0];
+    }
+
+    /**
+     * xorshift换一个探针值，和LongAdder冲突后的处理方式一致
+     */
+    private static int rehash() {
+        int[] holder = PROBE.get();
+        int probe = holder[0];
+        probe ^= probe << 13;
+        probe ^= probe >>> 17;
+        probe ^= probe << 5;
+        holder[0] = probe;
+        return probe;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.lock.lockscope.counter;
+
+/**
+ * @ClassName: SynchronizedCounter
+ * @Description: 与Data.right()相同的做法：所有线程争抢同一把锁
+ * @Create: 2026-10-18 10:15
+ */
+public class SynchronizedCounter implements Counter {
+
+    private final Object locker = new Object();
+
+    private long counter;
+
+    @Override
+    public void increment() {
+        synchronized (locker) {
+            counter++;
+        }
+    }
+
+    @Override
+    public long get() {
+        synchronized (locker) {
+            return counter;
+        }
+    }
+
+    @Override
+    public void reset() {
+        synchronized (locker) {
+            counter = 0;
+        }
+    }
+}
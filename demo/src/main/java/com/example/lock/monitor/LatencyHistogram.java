@@ -0,0 +1,142 @@
+package com.example.lock.monitor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @ClassName: LatencyHistogram
+ * @Description: HDR风格的对数线性直方图，记录纳秒级耗时
+ * 数值按二进制的数量级分段，每个数量级再均分成32个子桶，相对误差在3%左右，
+ * 1ns到几百年的范围只需要不到2000个long。记录时只做位运算和原子加，不分配任何对象，
+ * 可以放在加锁、解锁这种热路径上；计算百分位时才复制一份计数做快照。
+ * @Create: 2026-10-18 16:20
+ */
+public class LatencyHistogram {
+
+    /**
+     * 每个数量级的子桶数为2^SUB_BITS
+     */
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一次耗时，负数按0处理
+     * @param nanos 纳秒
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        total.incrementAndGet();
+        sum.addAndGet(value);
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    public long count() {
+        return total.get();
+    }
+
+    /**
+     * 清零，与record并发时可能丢掉正在记录的几个样本
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * 计算百分位快照，单位微秒
+     * @return count、mean、p50、p99、p999、max
+     */
+    public Map<String, Object> snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", count);
+        result.put("meanUs", count == 0 ? 0 : micros(sum.get() / Math.max(1, total.get())));
+        result.put("p50Us", micros(percentile(copy, count, 0.50)));
+        result.put("p99Us", micros(percentile(copy, count, 0.99)));
+        result.put("p999Us", micros(percentile(copy, count, 0.999)));
+        result.put("maxUs", micros(max.get()));
+        return result;
+    }
+
+    /**
+     * @param quantile 0到1之间
+     * @return 纳秒，取所在桶的中间值
+     */
+    public long percentile(double quantile) {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return percentile(copy, count, quantile);
+    }
+
+    private static long percentile(long[] counts, long count, double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return (lowerBound(i) + upperBound(i)) / 2;
+            }
+        }
+        return upperBound(counts.length - 1);
+    }
+
+    static int index(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (magnitude - SUB_BITS)) & (SUB_COUNT - 1);
+        return (magnitude - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int magnitude = index / SUB_COUNT + SUB_BITS - 1;
+        long sub = index % SUB_COUNT;
+        return (1L << magnitude) + (sub << (magnitude - SUB_BITS));
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int magnitude = index / SUB_COUNT + SUB_BITS - 1;
+        return lowerBound(index) + (1L << (magnitude - SUB_BITS)) - 1;
+    }
+
+    private static double micros(long nanos) {
+        return Math.round(nanos / 100.0) / 10.0;
+    }
+}
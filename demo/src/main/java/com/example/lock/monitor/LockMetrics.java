@@ -0,0 +1,129 @@
+package com.example.lock.monitor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ClassName: LockMetrics
+ * @Description: 按锁名统计的等待时间和持有时间
+ * 用法：在锁对象旁边声明一个LockMetrics字段，获取锁之前取一次nanoTime，
+ * 拿到锁之后调用acquired，释放之前调用released：
+ * <pre>
+ * long begin = System.nanoTime();
+ * synchronized (integerList) {
+ *     long acquired = metrics.acquired(begin);
+ *     try {
+ *         integerList.add(i);
+ *     } finally {
+ *         metrics.released(acquired);
+ *     }
+ * }
+ * </pre>
+ * of方法只应该在初始化时调用，热路径上只做nanoTime和直方图记录，不分配对象。
+ * @Create: 2026-10-18 16:45
+ */
+public class LockMetrics {
+
+    private static final Map<String, LockMetrics> REGISTRY = new ConcurrentHashMap<>();
+
+    /**
+     * 获取（没有则创建）指定名称的锁统计，同名的锁共享一份统计
+     * @param name 锁名
+     * @return LockMetrics
+     */
+    public static LockMetrics of(String name) {
+        return REGISTRY.computeIfAbsent(name, LockMetrics::new);
+    }
+
+    /**
+     * 所有锁的统计快照，按锁名排序
+     * @return Map
+     */
+    public static Map<String, Object> snapshotAll() {
+        Map<String, Object> result = new TreeMap<>();
+        REGISTRY.forEach((name, metrics) -> result.put(name, metrics.snapshot()));
+        return result;
+    }
+
+    public static void resetAll() {
+        REGISTRY.values().forEach(LockMetrics::reset);
+    }
+
+    private final String name;
+
+    private final LatencyHistogram wait = new LatencyHistogram();
+
+    private final LatencyHistogram hold = new LatencyHistogram();
+
+    /**
+     * 等待超时、没有拿到锁的次数
+     */
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * 不带超时的tryLock探测失败的次数，单独计数，不计入timeouts和wait
+     */
+    private final AtomicLong contended = new AtomicLong();
+
+    private LockMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 拿到锁之后调用
+     * @param waitBegin 开始获取锁时的System.nanoTime()
+     * @return 拿到锁的时间，释放时传给released
+     */
+    public long acquired(long waitBegin) {
+        long now = System.nanoTime();
+        wait.record(now - waitBegin);
+        return now;
+    }
+
+    /**
+     * 释放锁之前调用
+     * @param acquiredAt acquired的返回值
+     */
+    public void released(long acquiredAt) {
+        hold.record(System.nanoTime() - acquiredAt);
+    }
+
+    /**
+     * tryLock超时没有拿到锁时调用，等待时间同样计入wait
+     * @param waitBegin 开始获取锁时的System.nanoTime()
+     */
+    public void timedOut(long waitBegin) {
+        wait.record(System.nanoTime() - waitBegin);
+        timeouts.incrementAndGet();
+    }
+
+    /**
+     * 不带超时的tryLock没有拿到锁时调用
+     */
+    public void contended() {
+        contended.incrementAndGet();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("wait", wait.snapshot());
+        result.put("hold", hold.snapshot());
+        result.put("timeouts", timeouts.get());
+        result.put("contended", contended.get());
+        return result;
+    }
+
+    public void reset() {
+        wait.reset();
+        hold.reset();
+        timeouts.set(0);
+        contended.set(0);
+    }
+}
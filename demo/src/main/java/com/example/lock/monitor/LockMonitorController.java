@@ -0,0 +1,59 @@
+package com.example.lock.monitor;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @ClassName: LockMonitorController
+ * @Description: 暴露锁的监控数据
+ * 先访问 /deadlock/wrong，再访问 /lockmonitor/order，就能看到item之间互相反向的加锁顺序
+ * 以及第一次乱序加锁时的线程和持有的锁，不需要等到十秒超时。
+ * /lockmonitor/latency 可以看到每把锁的等待时间和持有时间分布，找出真正拖慢请求的那把锁。
+ * @Create: 2026-10-18 15:45
+ */
+@RestController
+@RequestMapping("/lockmonitor")
+public class LockMonitorController {
+
+    @GetMapping("/order")
+    public Map<String, Object> order() {
+        LockOrderTracker tracker = LockOrderTracker.global();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", tracker.isEnabled());
+        result.put("cycleCount", tracker.cycleCount());
+        result.put("graph", tracker.graph());
+        result.put("cycles", tracker.reports());
+        return result;
+    }
+
+    @GetMapping("/order/reset")
+    public void resetOrder() {
+        LockOrderTracker.global().reset();
+    }
+
+    @GetMapping("/order/enabled")
+    public boolean enableOrder(@RequestParam("value") boolean value) {
+        LockOrderTracker.global().setEnabled(value);
+        return value;
+    }
+
+    /**
+     * 每把锁的等待时间和持有时间分布（p50/p99/p999，单位微秒）以及超时次数，
+     * 包括LockGranularityController的两把锁和DeadLockController的商品锁
+     * @return Map
+     */
+    @GetMapping("/latency")
+    public Map<String, Object> latency() {
+        return LockMetrics.snapshotAll();
+    }
+
+    @GetMapping("/latency/reset")
+    public void resetLatency() {
+        LockMetrics.resetAll();
+    }
+}
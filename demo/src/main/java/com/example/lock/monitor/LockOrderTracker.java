@@ -0,0 +1,240 @@
+package com.example.lock.monitor;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ClassName: LockOrderTracker
+ * @Description: 全局加锁顺序图
+ * 线程持有A再去获取B，就记一条A -> B的边。新出现一条边A -> B时，检查图里是否已经存在B到A的路径，
+ * 存在的话说明有线程曾经按相反的顺序加过锁，这就是一个潜在的死锁环，立即记录并打印告警。
+ * 这和DeadLockController.wrong()的情况完全对应：item1 -> item2和item2 -> item1同时出现，
+ * 不需要真的发生互相等待，第一次乱序加锁时就能发现。
+ * 开销方面：已经见过的边只需要一次并发Set查询，只有第一次出现的边才做一次广度优先的环检测，整个过程不加锁，
+ * 业务稳定后边集合不再增长，热路径基本就是一次ThreadLocal读取加上遍历当前线程持有的几把锁。
+ * 注意：注册过的锁要调用TrackedLock.unregister才会从图中删除，适合商品锁这种长期存在的锁；
+ * 临时创建的锁（比如每次压测迭代new一批）用完要unregister，或者干脆用一个独立的LockOrderTracker。
+ * @Create: 2026-10-18 15:20
+ */
+@Slf4j
+public class LockOrderTracker {
+
+    private static final LockOrderTracker GLOBAL = new LockOrderTracker();
+
+    /**
+     * 最多保留的环报告条数
+     */
+    private static final int MAX_REPORTS = 100;
+
+    public static LockOrderTracker global() {
+        return GLOBAL;
+    }
+
+    private final AtomicInteger ids = new AtomicInteger();
+
+    private final Map<Integer, Node> nodes = new ConcurrentHashMap<>();
+
+    /**
+     * 已经报告过的环，按边去重，避免同一个环反复刷日志
+     */
+    private final Set<String> reportedEdges = ConcurrentHashMap.newKeySet();
+
+    private final ConcurrentLinkedDeque<CycleReport> reports = new ConcurrentLinkedDeque<>();
+
+    private final AtomicLong cycleCount = new AtomicLong();
+
+    /**
+     * 每个线程当前持有的锁，按获取顺序排列
+     */
+    private final ThreadLocal<List<Node>> held = ThreadLocal.withInitial(() -> new ArrayList<>(4));
+
+    private volatile boolean enabled = true;
+
+    Node register(String name) {
+        Node node = new Node(this, ids.incrementAndGet(), name);
+        nodes.put(node.id, node);
+        return node;
+    }
+
+    /**
+     * 从图中删除这把锁以及所有指向它的边，之后这把锁的加锁顺序不再记录
+     */
+    void unregister(Node node) {
+        node.removed = true;
+        nodes.remove(node.id);
+        node.successors.clear();
+        nodes.values().forEach(other -> other.successors.remove(node));
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    void acquiring(Node target) {
+        if (!enabled || target.removed) {
+            return;
+        }
+        List<Node> locks = held.get();
+        for (int i = 0; i < locks.size(); i++) {
+            Node from = locks.get(i);
+            if (from != target && !from.removed && from.successors.add(target)) {
+                onNewEdge(from, target, locks);
+            }
+        }
+    }
+
+    void acquired(Node node) {
+        if (enabled) {
+            held.get().add(node);
+        }
+    }
+
+    /**
+     * 释放顺序不一定和获取顺序相反，从后往前找到这把锁删掉
+     */
+    void released(Node node) {
+        List<Node> locks = held.get();
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            if (locks.get(i) == node) {
+                locks.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 新出现A -> B，如果图里B能走到A，就找到了一个环 A -> B -> ... -> A
+     */
+    private void onNewEdge(Node from, Node to, List<Node> heldLocks) {
+        List<Node> path = findPath(to, from);
+        if (path == null) {
+            return;
+        }
+        cycleCount.incrementAndGet();
+        if (!reportedEdges.add(from.id + "->" + to.id)) {
+            return;
+        }
+        List<String> cycle = new ArrayList<>();
+        cycle.add(from.name);
+        path.forEach(node -> cycle.add(node.name));
+        List<String> holding = new ArrayList<>();
+        heldLocks.forEach(node -> holding.add(node.name));
+        CycleReport report = new CycleReport(System.currentTimeMillis(), Thread.currentThread().getName(),
+                from.name, to.name, holding, cycle);
+        reports.addFirst(report);
+        while (reports.size() > MAX_REPORTS) {
+            reports.pollLast();
+        }
+        log.warn("potential deadlock: thread {} holds {} and is acquiring {}, lock order cycle {}",
+                report.getThread(), holding, to.name, String.join(" -> ", cycle));
+    }
+
+    /**
+     * 广度优先找一条from到to的路径，包含首尾两个节点
+     */
+    private List<Node> findPath(Node from, Node to) {
+        Map<Node, Node> parent = new HashMap<>();
+        Deque<Node> queue = new ArrayDeque<>();
+        parent.put(from, null);
+        queue.add(from);
+        while (!queue.isEmpty()) {
+            Node current = queue.poll();
+            if (current == to) {
+                LinkedList<Node> path = new LinkedList<>();
+                for (Node n = current; n != null; n = parent.get(n)) {
+                    path.addFirst(n);
+                }
+                return path;
+            }
+            for (Node next : current.successors) {
+                if (!parent.containsKey(next)) {
+                    parent.put(next, current);
+                    queue.add(next);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 加锁顺序图：锁名 -> 在持有它时获取过的锁名
+     * @return Map
+     */
+    public Map<String, List<String>> graph() {
+        Map<String, List<String>> graph = new TreeMap<>();
+        nodes.values().forEach(node -> {
+            if (!node.successors.isEmpty()) {
+                List<String> names = new ArrayList<>();
+                node.successors.forEach(next -> names.add(next.name));
+                Collections.sort(names);
+                graph.put(node.name, names);
+            }
+        });
+        return graph;
+    }
+
+    public List<CycleReport> reports() {
+        return new ArrayList<>(reports);
+    }
+
+    /**
+     * 发现的乱序加锁边数，每条反向边只在第一次出现时计数
+     * @return long
+     */
+    public long cycleCount() {
+        return cycleCount.get();
+    }
+
+    /**
+     * 清空加锁顺序和报告，已经注册的锁保留
+     */
+    public void reset() {
+        nodes.values().forEach(node -> node.successors.clear());
+        reportedEdges.clear();
+        reports.clear();
+        cycleCount.set(0);
+    }
+
+    static final class Node {
+        final LockOrderTracker tracker;
+        final int id;
+        final String name;
+        /**
+         * 持有这把锁时获取过的锁
+         */
+        final Set<Node> successors = ConcurrentHashMap.newKeySet();
+        /**
+         * 已经unregister，不再记录新的边
+         */
+        volatile boolean removed;
+
+        Node(LockOrderTracker tracker, int id, String name) {
+            this.tracker = tracker;
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class CycleReport {
+        private final long time;
+        private final String thread;
+        private final String holding;
+        private final String acquiring;
+        private final List<String> heldLocks;
+        private final List<String> cycle;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.lock.monitor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @ClassName: TrackedLock
+ * @Description: 带加锁顺序跟踪和耗时统计的ReentrantLock
+ * 每次准备获取锁之前，把"当前线程已经持有的锁 -> 这把锁"记到全局的加锁顺序图里（LockOrderTracker），
+ * 一旦出现与之前相反的加锁顺序，在真正阻塞之前就能报告出潜在的死锁环，
+ * 而不是等到tryLock超时甚至线上卡死才去VisualVM里找。
+ * 同时按锁名把等待时间和持有时间记到LockMetrics里，重入不重复计算。
+ * 可以直接替换ReentrantLock使用；通过Condition.await释放和重新获取锁的过程不在跟踪范围内。
+ * @Create: 2026-10-18 15:10
+ */
+public class TrackedLock extends ReentrantLock {
+
+    private static final long serialVersionUID = 1L;
+
+    private final LockOrderTracker.Node node;
+
+    private final LockMetrics metrics;
+
+    /**
+     * 最外层加锁成功的时间，只有持有锁的线程会读写
+     */
+    private long acquiredAt;
+
+    public TrackedLock(String name) {
+        this(name, LockOrderTracker.global());
+    }
+
+    public TrackedLock(String name, LockOrderTracker tracker) {
+        this.node = tracker.register(name);
+        this.metrics = LockMetrics.of(name);
+    }
+
+    public String getName() {
+        return node.name;
+    }
+
+    /**
+     * 从加锁顺序图中删除这把锁，不再使用的锁调用，否则图会随着new出来的锁一直增长。
+     * 之后仍然可以加锁解锁，只是不再跟踪加锁顺序，等待和持有耗时照常统计
+     */
+    public void unregister() {
+        node.tracker.unregister(node);
+    }
+
+    @Override
+    public void lock() {
+        boolean reentrant = beforeAcquire();
+        long begin = System.nanoTime();
+        super.lock();
+        afterAcquire(reentrant, begin);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        boolean reentrant = beforeAcquire();
+        long begin = System.nanoTime();
+        super.lockInterruptibly();
+        afterAcquire(reentrant, begin);
+    }
+
+    @Override
+    public boolean tryLock() {
+        boolean reentrant = beforeAcquire();
+        long begin = System.nanoTime();
+        if (super.tryLock()) {
+            afterAcquire(reentrant, begin);
+            return true;
+        }
+        // 不带超时的tryLock只是探测，失败不算超时，也不记等待时间，否则自旋探测会把超时数和等待分布淹没
+        metrics.contended();
+        return false;
+    }
+
+    @Override
+    public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+        boolean reentrant = beforeAcquire();
+        long begin = System.nanoTime();
+        if (super.tryLock(timeout, unit)) {
+            afterAcquire(reentrant, begin);
+            return true;
+        }
+        metrics.timedOut(begin);
+        return false;
+    }
+
+    @Override
+    public void unlock() {
+        boolean outermost = getHoldCount() == 1;
+        if (outermost) {
+            metrics.released(acquiredAt);
+        }
+        super.unlock();
+        if (outermost) {
+            node.tracker.released(node);
+        }
+    }
+
+    /**
+     * 重入不算新的加锁顺序
+     * @return 是否重入
+     */
+    private boolean beforeAcquire() {
+        if (isHeldByCurrentThread()) {
+            return true;
+        }
+        node.tracker.acquiring(node);
+        return false;
+    }
+
+    private void afterAcquire(boolean reentrant, long begin) {
+        if (!reentrant) {
+            acquiredAt = metrics.acquired(begin);
+            node.tracker.acquired(node);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.threadpool.executor;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * @ClassName: AdaptivePolicy
+ * @Description: AdaptivePoolSizer调整线程数的目标和边界
+ * 线程数只在[minThreads, maxThreads]之间调整；targetUtilization是希望每个线程忙碌的比例，
+ * 越接近1线程越少，但到达率稍有波动排队时间就会急剧上升。
+ * queueWaitSloMillis大于0时，还要求积压的任务能在这个时间内被消化完。
+ * @Create: 2026-10-23 09:50
+ */
+@Getter
+@ToString
+@Builder(toBuilder = true)
+public class AdaptivePolicy {
+
+    @Builder.Default
+    private final int minThreads = 1;
+
+    @Builder.Default
+    private final int maxThreads = Runtime.getRuntime().availableProcessors() * 8;
+
+    @Builder.Default
+    private final double targetUtilization = 0.75;
+
+    @Builder.Default
+    private final long queueWaitSloMillis = 0;
+
+    void validate() {
+        if (minThreads <= 0 || maxThreads < minThreads) {
+            throw new IllegalArgumentException("invalid thread bounds: " + this);
+        }
+        if (targetUtilization <= 0 || targetUtilization > 1 || queueWaitSloMillis < 0) {
+            throw new IllegalArgumentException("targetUtilization must be in (0, 1] and queueWaitSloMillis >= 0: " + this);
+        }
+    }
+}
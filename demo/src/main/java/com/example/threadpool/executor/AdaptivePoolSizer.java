@@ -0,0 +1,277 @@
+package com.example.threadpool.executor;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName: AdaptivePoolSizer
+ * @Description: 按观测到的到达率和执行时间调整线程池的核心线程数
+ * right()里2个核心线程、5个最大线程、容量10的队列只是拍脑袋的数字，换个负载就不对了。
+ * 每500毫秒对每个托管的线程池按最近5秒计算到达率λ、平均执行时间S、其中的CPU时间C、排队时间，然后
+ * 1. 利特尔法则：平均忙碌的线程数 L = λ × S，除以目标利用率得到需要的线程数；
+ * 2. 设置了排队时间SLO时，再加上在SLO内消化当前积压需要的线程数：积压数 × S / SLO；
+ * 3. 线程数超过 核数 × S / C 之后CPU已经跑满，再加线程只会互相抢CPU，按这个值封顶；
+ *    λ × C 已经接近核数时，说明CPU本身不够，不再扩容；
+ * 4. 限制在策略的上下界之内。扩容立即生效，连续2秒都需要缩容才缩，每次只缩一半差值，避免负载抖动时来回震荡。
+ * 还没有任务完成、不知道执行时间时，如果线程全忙且有积压，线程数翻倍。
+ * 只调整核心线程数，最大线程数固定为策略上界，队列满时线程池仍按原来的规则扩容兜底。
+ * 每次调整连同依据的指标记录到决策日志，见 /threadpoolmonitor/adaptive
+ * @Create: 2026-10-23 10:10
+ */
+@Slf4j
+@Component
+public class AdaptivePoolSizer {
+
+    private static final long INTERVAL_MILLIS = 500;
+
+    private static final int MAX_DECISIONS = 200;
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    /**
+     * 到达率和执行时间按最近10个周期（5秒）计算，单个周期里到达的任务太少，算出来的速率忽高忽低
+     */
+    private static final int HORIZON = 10;
+
+    /**
+     * 连续这么多个周期都需要缩容才真正缩容
+     */
+    private static final int SHRINK_AFTER = 4;
+
+    private static final int CPUS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 到达率 × 每个任务的CPU时间 ÷ 核数，超过这个比例认为CPU已经饱和
+     */
+    private static final double CPU_SATURATION = 0.9;
+
+    private final Map<String, Managed> managed = new ConcurrentHashMap<>();
+
+    private final Deque<Map<String, Object>> decisions = new ArrayDeque<>();
+
+    private ScheduledExecutorService ticker;
+
+    @PostConstruct
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("adaptive-pool-sizer").setDaemon(true).build());
+        ticker.scheduleAtFixedRate(this::tick, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * 开始托管线程池，核心线程数调整到策略下界，最大线程数设为策略上界；线程池终止后自动停止托管
+     * @param name 名称，同名的会被替换
+     * @param pool 线程池
+     * @param policy 策略
+     */
+    public void manage(String name, AdaptiveThreadPoolExecutor pool, AdaptivePolicy policy) {
+        policy.validate();
+        int core = Math.max(policy.getMinThreads(), Math.min(pool.getCorePoolSize(), policy.getMaxThreads()));
+        // 核心线程数不能超过最大线程数，调大上界时先改最大值，调小时先改核心数
+        if (pool.getMaximumPoolSize() < policy.getMaxThreads()) {
+            pool.setMaximumPoolSize(policy.getMaxThreads());
+            pool.setCorePoolSize(core);
+        } else {
+            pool.setCorePoolSize(core);
+            pool.setMaximumPoolSize(policy.getMaxThreads());
+        }
+        managed.put(name, new Managed(pool, policy));
+        log.info("adaptive sizing enabled for {}: {}", name, policy);
+    }
+
+    public void release(String name) {
+        managed.remove(name);
+    }
+
+    /**
+     * @return 每个托管线程池最近一个窗口的指标
+     */
+    public Map<String, Map<String, Object>> status() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        managed.forEach((name, state) -> {
+            if (state.latest != null) {
+                result.put(name, state.latest);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return 最近的调整记录，新的在前
+     */
+    public List<Map<String, Object>> decisions() {
+        synchronized (decisions) {
+            return new ArrayList<>(decisions);
+        }
+    }
+
+    /**
+     * 由唯一的ticker线程执行，Managed里的状态不需要同步
+     */
+    private void tick() {
+        try {
+            managed.forEach((name, state) -> {
+                if (state.pool.isTerminated()) {
+                    managed.remove(name, state);
+                    return;
+                }
+                evaluate(name, state);
+            });
+        } catch (Exception ex) {
+            // 一次计算失败不能让调度任务终止
+            log.error("adaptive sizing failed", ex);
+        }
+    }
+
+    private void evaluate(String name, Managed state) {
+        AdaptiveThreadPoolExecutor pool = state.pool;
+        AdaptivePolicy policy = state.policy;
+        AdaptiveThreadPoolExecutor.Totals totals = pool.totals();
+        AdaptiveThreadPoolExecutor.Totals last = state.history.peekFirst();
+        state.history.addLast(totals);
+        if (state.history.size() > HORIZON) {
+            state.history.removeFirst();
+        }
+        double seconds = (totals.nanos - last.nanos) / 1e9;
+        long completed = totals.completed - last.completed;
+        long waitP99 = pool.queueWait().percentile(0.99);
+        pool.queueWait().reset();
+
+        state.arrivalRate = (totals.arrivals - last.arrivals) / seconds;
+        double meanWait = 0;
+        if (completed > 0) {
+            // 这段时间没有任务完成时沿用上一次的执行时间
+            state.serviceNanos = (double) (totals.serviceNanos - last.serviceNanos) / completed;
+            state.cpuNanos = (double) (totals.cpuNanos - last.cpuNanos) / completed;
+            meanWait = (double) (totals.waitNanos - last.waitNanos) / completed;
+        }
+
+        int queued = pool.getQueue().size();
+        int current = pool.getCorePoolSize();
+        double busy = -1;
+        double cpuCap = -1;
+        double cpuDemand = -1;
+        double needed;
+        String reason;
+        if (state.serviceNanos < 0) {
+            // 还没有任务完成，只能看线程是不是全忙
+            if (queued > 0 && pool.getActiveCount() >= current) {
+                needed = current * 2;
+                reason = "saturated before first completion";
+            } else {
+                needed = current;
+                reason = "no completed tasks yet";
+            }
+        } else {
+            busy = state.arrivalRate * state.serviceNanos / 1e9;
+            needed = busy / policy.getTargetUtilization();
+            reason = "little's law";
+            if (policy.getQueueWaitSloMillis() > 0 && queued > 0) {
+                double drain = queued * state.serviceNanos / TimeUnit.MILLISECONDS.toNanos(policy.getQueueWaitSloMillis());
+                if (drain > 0.5) {
+                    needed += drain;
+                    reason = "little's law + backlog drain";
+                }
+            }
+            if (AdaptiveThreadPoolExecutor.isCpuTimeSupported() && state.cpuNanos > 0) {
+                cpuCap = CPUS * state.serviceNanos / state.cpuNanos;
+                cpuDemand = state.arrivalRate * state.cpuNanos / 1e9 / CPUS;
+                if (needed > cpuCap) {
+                    needed = cpuCap;
+                    reason = "cpu bound";
+                }
+                // 线程在等CPU时执行时间也会变长，cpuCap跟着虚高，CPU需求接近核数时不再扩容
+                if (cpuDemand >= CPU_SATURATION && needed > current) {
+                    needed = current;
+                    reason = "cpu saturated";
+                }
+            }
+        }
+        int target = (int) Math.ceil(needed);
+        if (target < current) {
+            // 连续几个周期都需要缩容才缩，每次只缩一半差值
+            if (++state.shrinkVotes < SHRINK_AFTER) {
+                target = current;
+            } else {
+                target = current - (current - target + 1) / 2;
+                state.shrinkVotes = 0;
+            }
+        } else {
+            state.shrinkVotes = 0;
+        }
+        target = Math.max(policy.getMinThreads(), Math.min(policy.getMaxThreads(), target));
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("time", LocalTime.now().format(TIME_FORMAT));
+        metrics.put("pool", name);
+        metrics.put("arrivalRate", round(state.arrivalRate));
+        metrics.put("serviceMs", state.serviceNanos < 0 ? null : round(state.serviceNanos / 1e6));
+        metrics.put("cpuMs", state.cpuNanos < 0 ? null : round(state.cpuNanos / 1e6));
+        metrics.put("blockedRatio", state.serviceNanos > 0 && state.cpuNanos >= 0
+                ? round(Math.max(0, 1 - state.cpuNanos / state.serviceNanos)) : null);
+        metrics.put("queueWaitMeanMs", round(meanWait / 1e6));
+        metrics.put("queueWaitP99Ms", round(waitP99 / 1e6));
+        metrics.put("queued", queued);
+        metrics.put("busyThreads", busy < 0 ? null : round(busy));
+        metrics.put("cpuCap", cpuCap < 0 ? null : round(cpuCap));
+        metrics.put("cpuDemand", cpuDemand < 0 ? null : round(cpuDemand));
+        metrics.put("poolSize", pool.getPoolSize());
+        metrics.put("from", current);
+        metrics.put("to", target);
+        metrics.put("reason", reason);
+        state.latest = metrics;
+
+        if (target != current) {
+            pool.setCorePoolSize(target);
+            log.info("adaptive resize {}", metrics);
+            synchronized (decisions) {
+                decisions.addFirst(metrics);
+                while (decisions.size() > MAX_DECISIONS) {
+                    decisions.removeLast();
+                }
+            }
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static class Managed {
+        final AdaptiveThreadPoolExecutor pool;
+        final AdaptivePolicy policy;
+        final Deque<AdaptiveThreadPoolExecutor.Totals> history = new ArrayDeque<>();
+        int shrinkVotes;
+        double arrivalRate;
+        double serviceNanos = -1;
+        double cpuNanos = -1;
+        volatile Map<String, Object> latest;
+
+        Managed(AdaptiveThreadPoolExecutor pool, AdaptivePolicy policy) {
+            this.pool = pool;
+            this.policy = policy;
+            this.history.addLast(pool.totals());
+        }
+    }
+}
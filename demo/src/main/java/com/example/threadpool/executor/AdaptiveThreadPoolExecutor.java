@@ -0,0 +1,127 @@
+package com.example.threadpool.executor;
+
+import com.example.lock.monitor.LatencyHistogram;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @ClassName: AdaptiveThreadPoolExecutor
+ * @Description: 记录到达数、排队时间、执行时间和执行期间CPU时间的线程池，供AdaptivePoolSizer调整线程数
+ * 执行时间减去CPU时间就是任务阻塞（IO、锁、sleep）的时间，两者的比例决定多开线程有没有用：
+ * 纯CPU任务线程数超过核数只会互相抢CPU，阻塞多的任务才需要更多线程。
+ * 计数器都是累计值，由AdaptivePoolSizer按周期取差值；排队时间分布每个周期重置一次。
+ * 任务会被包装一层，shutdownNow返回的是包装后的任务。
+ * @Create: 2026-10-23 09:30
+ */
+public class AdaptiveThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private static final boolean CPU_TIME_SUPPORTED = THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported();
+
+    static {
+        if (CPU_TIME_SUPPORTED && !THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+            THREAD_MX_BEAN.setThreadCpuTimeEnabled(true);
+        }
+    }
+
+    private final LongAdder arrivals = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder serviceNanos = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    public AdaptiveThreadPoolExecutor(int corePoolSize, int maximumPoolSize,
+                                      long keepAliveTime, TimeUnit unit,
+                                      BlockingQueue<Runnable> workQueue,
+                                      ThreadFactory threadFactory,
+                                      RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+    }
+
+    /**
+     * 被拒绝的任务也算到达，否则线程池越满，测到的到达率越低
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        arrivals.increment();
+        super.execute(new MeasuredTask(command, System.nanoTime()));
+    }
+
+    /**
+     * @return 当前的累计值和取值时刻
+     */
+    Totals totals() {
+        return new Totals(System.nanoTime(), arrivals.sum(), completed.sum(), waitNanos.sum(), serviceNanos.sum(), cpuNanos.sum());
+    }
+
+    LatencyHistogram queueWait() {
+        return queueWait;
+    }
+
+    static boolean isCpuTimeSupported() {
+        return CPU_TIME_SUPPORTED;
+    }
+
+    static class Totals {
+        final long nanos;
+        final long arrivals;
+        final long completed;
+        final long waitNanos;
+        final long serviceNanos;
+        final long cpuNanos;
+
+        Totals(long nanos, long arrivals, long completed, long waitNanos, long serviceNanos, long cpuNanos) {
+            this.nanos = nanos;
+            this.arrivals = arrivals;
+            this.completed = completed;
+            this.waitNanos = waitNanos;
+            this.serviceNanos = serviceNanos;
+            this.cpuNanos = cpuNanos;
+        }
+    }
+
+    private class MeasuredTask implements Runnable {
+        private final Runnable delegate;
+        private final long submitted;
+
+        MeasuredTask(Runnable delegate, long submitted) {
+            this.delegate = delegate;
+            this.submitted = submitted;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            long wait = start - submitted;
+            waitNanos.add(wait);
+            queueWait.record(wait);
+            long cpuStart = CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0;
+            try {
+                delegate.run();
+            } finally {
+                serviceNanos.add(System.nanoTime() - start);
+                if (CPU_TIME_SUPPORTED) {
+                    cpuNanos.add(THREAD_MX_BEAN.getCurrentThreadCpuTime() - cpuStart);
+                }
+                completed.increment();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+}
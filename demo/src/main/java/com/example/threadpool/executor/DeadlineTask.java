@@ -0,0 +1,107 @@
+package com.example.threadpool.executor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ClassName: DeadlineTask
+ * @Description: 带优先级和截止时间的任务，按优先级、截止时间、提交顺序排序
+ * 开始执行时如果已经过了截止时间，直接以TimeoutException结束而不执行，把工作线程让给还来得及的任务。
+ * @Create: 2026-10-22 14:10
+ */
+class DeadlineTask implements Runnable, Comparable<DeadlineTask> {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final Runnable body;
+    private final TaskPriority priority;
+    private final long deadlineNanos;
+    private final long enqueuedNanos = System.nanoTime();
+    private final long sequence = SEQUENCE.incrementAndGet();
+    private final DeadlineThreadPoolExecutor.PriorityStats stats;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    DeadlineTask(Runnable body, TaskPriority priority, long deadlineNanos, DeadlineThreadPoolExecutor.PriorityStats stats) {
+        this.body = body;
+        this.priority = priority;
+        this.deadlineNanos = deadlineNanos;
+        this.stats = stats;
+    }
+
+    @Override
+    public void run() {
+        if (future.isDone()) {
+            return;
+        }
+        long now = System.nanoTime();
+        stats.queueWait.record(now - enqueuedNanos);
+        if (isExpired(now)) {
+            expire(now);
+            return;
+        }
+        try {
+            body.run();
+            stats.completed.increment();
+            future.complete(null);
+        } catch (Throwable ex) {
+            stats.failed.increment();
+            future.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    boolean isExpired(long now) {
+        return deadlineNanos != NO_DEADLINE && now - deadlineNanos > 0;
+    }
+
+    /**
+     * 开始执行时、或者在队列里被清理时已经过了截止时间
+     */
+    void expire(long now) {
+        stats.deadlineMissed.increment();
+        future.completeExceptionally(new TimeoutException("deadline passed before start, waited "
+                + (now - enqueuedNanos) / 1_000_000 + "ms"));
+    }
+
+    /**
+     * 队列满时被更紧急的任务挤出
+     */
+    void evict() {
+        stats.evicted.increment();
+        future.completeExceptionally(new RejectedExecutionException("evicted by a more urgent task"));
+    }
+
+    void reject(RejectedExecutionException ex) {
+        stats.rejected.increment();
+        future.completeExceptionally(ex);
+    }
+
+    CompletableFuture<Void> future() {
+        return future;
+    }
+
+    /**
+     * 截止时间的比较用差值，避免nanoTime溢出时比较出错；没有截止时间的排在有截止时间的后面
+     */
+    @Override
+    public int compareTo(DeadlineTask other) {
+        int byPriority = priority.compareTo(other.priority);
+        if (byPriority != 0) {
+            return byPriority;
+        }
+        if (deadlineNanos != other.deadlineNanos) {
+            if (deadlineNanos == NO_DEADLINE) {
+                return 1;
+            }
+            if (other.deadlineNanos == NO_DEADLINE) {
+                return -1;
+            }
+            return deadlineNanos - other.deadlineNanos < 0 ? -1 : 1;
+        }
+        return Long.compare(sequence, other.sequence);
+    }
+}
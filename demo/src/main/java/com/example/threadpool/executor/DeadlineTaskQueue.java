@@ -0,0 +1,93 @@
+package com.example.threadpool.executor;
+
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * @ClassName: DeadlineTaskQueue
+ * @Description: 有容量上限的优先级队列
+ * PriorityBlockingQueue本身是无界的，和newFixedThreadPool的LinkedBlockingQueue一样会无限积压。
+ * 这里加上容量：队列满时先和普通有界队列一样入队失败，让线程池扩容；
+ * 线程数也到最大值后，先挤掉已经过了截止时间的任务，没有的话如果新任务比队列里最不紧急的任务更紧急，
+ * 就挤掉那个任务；新任务本身最不紧急才真正拒绝。
+ * 这样交互任务不会因为队列被批量任务占满而被AbortPolicy拒绝。
+ * 找最不紧急的任务需要遍历，容量应该保持在几百以内。
+ * @Create: 2026-10-22 14:30
+ */
+public class DeadlineTaskQueue extends PriorityBlockingQueue<Runnable> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+
+    /**
+     * 多个提交线程同时判断“满了挤掉谁”必须串行，出队不受影响
+     */
+    private final Object offerLock = new Object();
+
+    public DeadlineTaskQueue(int capacity) {
+        super(Math.max(1, capacity));
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * 和普通有界队列一样，满了就返回false，让线程池先扩容到最大线程数
+     */
+    @Override
+    public boolean offer(Runnable runnable) {
+        synchronized (offerLock) {
+            return size() < capacity && super.offer(runnable);
+        }
+    }
+
+    /**
+     * 线程池已经到最大线程数时由拒绝策略调用：挤掉过期任务或者比task更不紧急的任务后入队
+     * @param task 新任务
+     * @return 是否入队
+     */
+    boolean offerEvicting(DeadlineTask task) {
+        synchronized (offerLock) {
+            if (size() >= capacity) {
+                long now = System.nanoTime();
+                DeadlineTask victim = findVictim(task, now);
+                if (victim == null) {
+                    return false;
+                }
+                // 移除失败说明刚被工作线程取走，队列已经有空位了
+                if (remove(victim)) {
+                    if (victim.isExpired(now)) {
+                        victim.expire(now);
+                    } else {
+                        victim.evict();
+                    }
+                }
+            }
+            return super.offer(task);
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - size());
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private DeadlineTask findVictim(DeadlineTask incoming, long now) {
+        DeadlineTask leastUrgent = null;
+        for (Runnable runnable : this) {
+            DeadlineTask queued = (DeadlineTask) runnable;
+            if (queued.isExpired(now)) {
+                return queued;
+            }
+            if (leastUrgent == null || queued.compareTo(leastUrgent) > 0) {
+                leastUrgent = queued;
+            }
+        }
+        return leastUrgent != null && leastUrgent.compareTo(incoming) > 0 ? leastUrgent : null;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.threadpool.executor;
+
+import com.example.lock.monitor.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @ClassName: DeadlineThreadPoolExecutor
+ * @Description: 按优先级和截止时间调度的线程池
+ * 交互请求和批量任务共用一个线程池时，普通的FIFO队列让交互请求排在10秒的批量任务后面，
+ * 队列满了又和批量任务一样被拒绝。这里队列按优先级、再按截止时间排序（DeadlineTaskQueue），
+ * 线程数到最大值、队列也满时，更紧急的任务挤掉最不紧急的；开始执行时已经超时的任务直接失败，不浪费工作线程。
+ * 每个优先级分别统计排队时间分布、完成数、超时丢弃数、被挤掉数和被拒绝数。
+ * submit返回的CompletableFuture：超时丢弃以TimeoutException结束，被挤掉、拒绝或者shutdownNow时还在排队以RejectedExecutionException结束。
+ * @Create: 2026-10-22 15:00
+ */
+public class DeadlineThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private final Map<TaskPriority, PriorityStats> stats = new EnumMap<>(TaskPriority.class);
+
+    public DeadlineThreadPoolExecutor(int corePoolSize, int maximumPoolSize,
+                                      long keepAliveTime, TimeUnit unit,
+                                      DeadlineTaskQueue workQueue,
+                                      ThreadFactory threadFactory) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, (r, executor) -> {
+            if (!executor.isShutdown() && workQueue.offerEvicting((DeadlineTask) r)) {
+                return;
+            }
+            RejectedExecutionException ex = new RejectedExecutionException(executor.isShutdown()
+                    ? "executor has been shut down" : "queue is full of more urgent tasks");
+            ((DeadlineTask) r).reject(ex);
+            throw ex;
+        });
+        for (TaskPriority priority : TaskPriority.values()) {
+            stats.put(priority, new PriorityStats());
+        }
+    }
+
+    /**
+     * @param task 任务
+     * @param priority 优先级
+     * @param timeout 截止时间，从现在算起，必须在这之前开始执行
+     * @param unit 单位
+     * @return 任务结果，被拒绝时返回已经失败的future而不是抛异常
+     */
+    public CompletableFuture<Void> submit(Runnable task, TaskPriority priority, long timeout, TimeUnit unit) {
+        return submit(new DeadlineTask(task, priority, System.nanoTime() + unit.toNanos(timeout), stats.get(priority)));
+    }
+
+    public CompletableFuture<Void> submit(Runnable task, TaskPriority priority) {
+        return submit(new DeadlineTask(task, priority, DeadlineTask.NO_DEADLINE, stats.get(priority)));
+    }
+
+    private CompletableFuture<Void> submit(DeadlineTask task) {
+        try {
+            super.execute(task);
+        } catch (RejectedExecutionException ex) {
+            // future已经由拒绝策略标记失败
+        }
+        return task.future();
+    }
+
+    /**
+     * 普通的execute/submit按NORMAL优先级、没有截止时间处理，被拒绝时照常抛RejectedExecutionException
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (command instanceof DeadlineTask) {
+            super.execute(command);
+        } else {
+            super.execute(new DeadlineTask(command, TaskPriority.NORMAL, DeadlineTask.NO_DEADLINE, stats.get(TaskPriority.NORMAL)));
+        }
+    }
+
+    /**
+     * 队列里还没执行的任务不会再执行，以RejectedExecutionException结束它们的future，
+     * 否则submit的调用方会一直等一个永远不会完成的future
+     * @return 从队列里取出的任务
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> drained = super.shutdownNow();
+        for (Runnable task : drained) {
+            if (task instanceof DeadlineTask) {
+                ((DeadlineTask) task).reject(new RejectedExecutionException("executor has been shut down"));
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * @return 每个优先级的统计，排队时间单位微秒
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        stats.forEach((priority, stat) -> result.put(priority.name(), stat.snapshot()));
+        return result;
+    }
+
+    static class PriorityStats {
+        final LatencyHistogram queueWait = new LatencyHistogram();
+        final LongAdder completed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder deadlineMissed = new LongAdder();
+        final LongAdder evicted = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("completed", completed.sum());
+            result.put("failed", failed.sum());
+            result.put("deadlineMissed", deadlineMissed.sum());
+            result.put("evicted", evicted.sum());
+            result.put("rejected", rejected.sum());
+            result.put("queueWait", queueWait.snapshot());
+            return result;
+        }
+    }
+}
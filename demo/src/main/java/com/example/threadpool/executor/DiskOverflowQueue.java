@@ -0,0 +1,561 @@
+package com.example.threadpool.executor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @ClassName: DiskOverflowQueue
+ * @Description: 堆内放一小段队头、放不下的部分溢出到内存映射文件的工作队列
+ * right()里ArrayBlockingQueue(10)满了就拒绝，oom1的无界队列又会把堆撑爆。这个队列在堆内最多保留headCapacity个任务，
+ * 队头满了之后新任务序列化后追加到一个固定大小的内存映射文件里，工作线程取走队头后再从文件里按顺序补充，整体保持FIFO。
+ * 能吸收的突发量由文件大小决定，和堆无关；写文件就是往MappedByteBuffer里put，由操作系统负责刷盘。
+ * 文件按环形缓冲区使用，写到末尾放不下时写一个回绕标记，从文件头之后重新开始，读位置追上来之前不会覆盖。
+ * 文件开头32字节是文件头：魔数、读位置、写位置、记录数，每次读写后更新，
+ * 进程重启时用同一个文件创建队列，还没执行的溢出任务会被恢复（堆内队头的任务不会）。
+ * 限制：
+ * 1. 溢出的任务必须实现Serializable，请用execute提交，submit包装出的FutureTask无法序列化，溢出时入队失败；
+ * 2. 文件里未执行的任务占满空间后入队失败，交给线程池的拒绝策略；
+ * 3. 线程池只有在队列入队失败时才扩容，使用这个队列时核心线程数应该等于最大线程数；
+ * 4. 文件里的内容按不可信数据处理，反序列化时只接受构造时列出的任务类（以及String、基本类型的包装类和基本类型数组），
+ *    其他类一律拒绝并跳过这条记录，防止被篡改的溢出文件借反序列化执行任意代码，不在白名单里的任务也不会溢出；
+ * 5. close之后入队失败，出队只返回堆内队头里剩下的任务，不再读写文件。
+ * @Create: 2026-10-22 17:00
+ */
+@Slf4j
+public class DiskOverflowQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable>, Closeable {
+
+    private static final int MAGIC = 0x4F564651;
+    private static final int HEADER_BYTES = 32;
+    private static final int READ_POS = 4;
+    private static final int WRITE_POS = 12;
+    private static final int COUNT_POS = 20;
+    private static final int WRAP_MARKER = -1;
+
+    /**
+     * 任务类的字段里常见的JDK类型，不用每个调用方都列出来
+     */
+    private static final List<Class<?>> DEFAULT_ALLOWED = Arrays.asList(
+            String.class, Number.class, Boolean.class, Character.class, Byte.class, Short.class,
+            Integer.class, Long.class, Float.class, Double.class,
+            boolean[].class, char[].class, byte[].class, short[].class,
+            int[].class, long[].class, float[].class, double[].class);
+
+    private final int headCapacity;
+    private final ArrayDeque<Runnable> head;
+    private final File file;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer buffer;
+    private final boolean syncWrites;
+    private final Set<String> allowedClasses = new HashSet<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private int readPos;
+    private int writePos;
+    private int diskCount;
+    private int diskBytes;
+    private boolean closed;
+
+    private long spilledCount;
+    private int peakDiskBytes;
+    private final int recoveredCount;
+
+    /**
+     * @param headCapacity 堆内队头的容量
+     * @param file 溢出文件，已经存在且格式正确时恢复其中的任务
+     * @param segmentBytes 溢出文件大小
+     * @param syncWrites 每次写入后是否force刷盘，关闭时只保证进程崩溃不丢，机器掉电可能丢
+     * @param allowedClasses 允许溢出和反序列化的任务类，任务字段用到的非JDK可序列化类型也要列出
+     */
+    public DiskOverflowQueue(int headCapacity, File file, int segmentBytes, boolean syncWrites,
+                             Class<?>... allowedClasses) throws IOException {
+        if (headCapacity < 0 || segmentBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("invalid headCapacity:" + headCapacity + " segmentBytes:" + segmentBytes);
+        }
+        this.headCapacity = headCapacity;
+        this.head = new ArrayDeque<>(Math.max(1, headCapacity));
+        this.file = file;
+        this.syncWrites = syncWrites;
+        for (Class<?> type : DEFAULT_ALLOWED) {
+            this.allowedClasses.add(type.getName());
+        }
+        for (Class<?> type : allowedClasses) {
+            this.allowedClasses.add(type.getName());
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        boolean existed = file.exists() && file.length() >= HEADER_BYTES;
+        this.raf = new RandomAccessFile(file, "rw");
+        int size = existed ? (int) Math.max(segmentBytes, Math.min(file.length(), Integer.MAX_VALUE)) : segmentBytes;
+        this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (existed && buffer.getInt(0) == MAGIC && isValidHeader(size)) {
+            readPos = (int) buffer.getLong(READ_POS);
+            writePos = (int) buffer.getLong(WRITE_POS);
+            diskCount = buffer.getInt(COUNT_POS);
+            int pos = readPos;
+            for (int i = 0; i < diskCount; i++) {
+                pos = recordStart(pos);
+                int length = recordLength(pos);
+                if (length < 0 || diskBytes + 4 + length > size - HEADER_BYTES) {
+                    // 记录损坏：只保留前面完好的i条，新任务从损坏的位置开始覆盖
+                    log.error("corrupt record at offset {} of {}, recovered {} of {} tasks", pos, file, i, diskCount);
+                    diskCount = i;
+                    if (diskCount == 0) {
+                        readPos = pos = HEADER_BYTES;
+                    }
+                    writePos = pos;
+                    writeHeader();
+                    break;
+                }
+                diskBytes += 4 + length;
+                pos += 4 + length;
+            }
+            peakDiskBytes = diskBytes;
+            log.info("recovered {} tasks ({} bytes) from {}", diskCount, diskBytes, file);
+        } else {
+            readPos = writePos = HEADER_BYTES;
+            diskCount = 0;
+            buffer.putInt(0, MAGIC);
+            writeHeader();
+        }
+        this.recoveredCount = diskCount;
+    }
+
+    private boolean isValidHeader(int size) {
+        long read = buffer.getLong(READ_POS);
+        long write = buffer.getLong(WRITE_POS);
+        int count = buffer.getInt(COUNT_POS);
+        return read >= HEADER_BYTES && read <= size && write >= HEADER_BYTES && write <= size && count >= 0;
+    }
+
+    @Override
+    public boolean offer(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            // 文件里还有任务时新任务也必须写文件，否则会插到文件里那些更早的任务前面
+            if (diskCount == 0 && head.size() < headCapacity) {
+                head.addLast(task);
+            } else if (!spill(task)) {
+                return false;
+            }
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (!offer(task)) {
+                checkNotClosed();
+                notFull.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (!offer(task)) {
+                checkNotClosed();
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            Runnable task;
+            while ((task = dequeue()) == null) {
+                notEmpty.await();
+            }
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            Runnable task;
+            while ((task = dequeue()) == null) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            if (!closed && head.isEmpty() && diskCount > 0) {
+                refill();
+            }
+            return head.peekFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return head.size() + diskCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 队头的剩余空间加上按已溢出任务平均大小估算的文件剩余空间
+     */
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            int average = diskCount == 0 ? 1024 : Math.max(1, diskBytes / diskCount);
+            return Math.max(0, headCapacity - head.size()) + (buffer.capacity() - HEADER_BYTES - diskBytes) / average;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 只能移除还在堆内队头的任务，文件里的任务不支持随机删除
+     */
+    @Override
+    public boolean remove(Object o) {
+        lock.lock();
+        try {
+            return head.remove(o);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 快照，包含文件里的任务（会逐个反序列化）
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        lock.lock();
+        try {
+            List<Runnable> snapshot = new ArrayList<>(head);
+            int pos = readPos;
+            for (int i = 0; !closed && i < diskCount; i++) {
+                pos = recordStart(pos);
+                int length = recordLength(pos);
+                if (length < 0) {
+                    break;
+                }
+                Runnable task = deserialize(pos + 4, length);
+                if (task != null) {
+                    snapshot.add(task);
+                }
+                pos += 4 + length;
+            }
+            return snapshot.iterator();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        lock.lock();
+        try {
+            int n = 0;
+            Runnable task;
+            while (n < maxElements && (task = dequeue()) != null) {
+                c.add(task);
+                n++;
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSpilledCount() {
+        lock.lock();
+        try {
+            return spilledCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getPeakDiskBytes() {
+        lock.lock();
+        try {
+            return peakDiskBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getRecoveredCount() {
+        return recoveredCount;
+    }
+
+    public int getDiskCount() {
+        lock.lock();
+        try {
+            return diskCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 刷盘并关闭文件，文件里还没执行的任务下次用同一个文件创建队列时恢复。
+     * 之后offer返回false，put和带超时的offer抛IllegalStateException，出队只取堆内队头，重复调用无效果
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notFull.signalAll();
+            buffer.force();
+            raf.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkNotClosed() {
+        if (closed) {
+            throw new IllegalStateException("queue closed: " + file);
+        }
+    }
+
+    private Runnable dequeue() {
+        Runnable task = head.pollFirst();
+        if (closed) {
+            return task;
+        }
+        if (task == null && diskCount > 0) {
+            refill();
+            task = head.pollFirst();
+        }
+        if (task != null) {
+            refill();
+            notFull.signal();
+        }
+        return task;
+    }
+
+    /**
+     * 从文件里按顺序补充队头，文件里的任务总是比队头的晚，追加到队尾即可保持FIFO
+     */
+    private void refill() {
+        while (diskCount > 0 && (head.size() < headCapacity || head.isEmpty())) {
+            readPos = recordStart(readPos);
+            int length = recordLength(readPos);
+            if (length < 0) {
+                // 找不到下一条记录的边界，剩下的记录都读不出来了，丢弃它们而不是让异常一直抛给工作线程
+                log.error("corrupt record at offset {} of {}, dropped {} tasks", readPos, file, diskCount);
+                diskCount = 0;
+                diskBytes = 0;
+                readPos = writePos = HEADER_BYTES;
+                writeHeader();
+                break;
+            }
+            int offset = readPos + 4;
+            readPos += 4 + length;
+            Runnable task = deserialize(offset, length);
+            diskCount--;
+            diskBytes -= 4 + length;
+            if (diskCount == 0) {
+                readPos = writePos = HEADER_BYTES;
+            }
+            writeHeader();
+            if (task != null) {
+                head.addLast(task);
+            }
+        }
+    }
+
+    private boolean spill(Runnable task) {
+        if (!(task instanceof Serializable)) {
+            log.warn("task {} is not Serializable, cannot spill to {}", task.getClass().getName(), file);
+            return false;
+        }
+        if (!allowedClasses.contains(task.getClass().getName())) {
+            // 写进去了也读不回来，不如直接入队失败
+            log.warn("task {} is not in the allowed classes, cannot spill to {}", task.getClass().getName(), file);
+            return false;
+        }
+        byte[] bytes;
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+             ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(task);
+            oos.flush();
+            bytes = out.toByteArray();
+        } catch (IOException e) {
+            log.warn("failed to serialize task {}", task, e);
+            return false;
+        }
+        int need = 4 + bytes.length;
+        int capacity = buffer.capacity();
+        if (diskCount > 0 && writePos <= readPos) {
+            // 已经回绕，只能写到读位置之前
+            if (writePos + need > readPos) {
+                return false;
+            }
+        } else if (writePos + need > capacity) {
+            // 末尾放不下，回到文件头之后，前提是读位置之前有足够空间
+            if (HEADER_BYTES + need > (diskCount == 0 ? capacity : readPos)) {
+                return false;
+            }
+            if (capacity - writePos >= 4) {
+                buffer.putInt(writePos, WRAP_MARKER);
+            }
+            writePos = HEADER_BYTES;
+        }
+        buffer.putInt(writePos, bytes.length);
+        buffer.position(writePos + 4);
+        buffer.put(bytes);
+        writePos += need;
+        diskCount++;
+        diskBytes += need;
+        spilledCount++;
+        peakDiskBytes = Math.max(peakDiskBytes, diskBytes);
+        writeHeader();
+        if (syncWrites) {
+            buffer.force();
+        }
+        return true;
+    }
+
+    /**
+     * pos处是回绕标记或者剩余空间不够放长度字段时，记录从文件头之后开始
+     */
+    private int recordStart(int pos) {
+        if (buffer.capacity() - pos < 4 || buffer.getInt(pos) == WRAP_MARKER) {
+            return HEADER_BYTES;
+        }
+        return pos;
+    }
+
+    /**
+     * 读取pos处记录的长度，文件按不可信数据处理：长度必须为正，并且整条记录不能超出文件末尾
+     * @return 长度，不合法时返回-1
+     */
+    private int recordLength(int pos) {
+        int length = buffer.getInt(pos);
+        if (length <= 0 || length > buffer.capacity() - pos - 4) {
+            return -1;
+        }
+        return length;
+    }
+
+    private Runnable deserialize(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        try (ObjectInputStream in = new AllowListObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Runnable) in.readObject();
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            // 类已经改名或删除、不在白名单里或者内容被篡改的任务无法恢复，跳过而不是卡住整个队列
+            log.error("failed to deserialize task at offset {} of {}, skipped", offset, file, e);
+            return null;
+        }
+    }
+
+    private void writeHeader() {
+        buffer.putLong(READ_POS, readPos);
+        buffer.putLong(WRITE_POS, writePos);
+        buffer.putInt(COUNT_POS, diskCount);
+    }
+
+    /**
+     * 只解析白名单里的类，其他类在创建对象之前就抛InvalidClassException
+     */
+    private final class AllowListObjectInputStream extends ObjectInputStream {
+
+        AllowListObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!allowedClasses.contains(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "not allowed in " + file);
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
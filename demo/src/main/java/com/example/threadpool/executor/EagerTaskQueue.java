@@ -0,0 +1,57 @@
+package com.example.threadpool.executor;
+
+/**
+ * @ClassName: EagerTaskQueue
+ * @Description: 知道自己属于哪个线程池的任务队列
+ * ThreadPoolExecutor在核心线程满了之后先尝试入队，入队失败才扩容线程。
+ * 这个队列在入队时看一眼线程池：还有空闲线程就正常入队，让空闲线程去取；
+ * 没有空闲线程且线程数还没到最大值，就返回false，让线程池先扩容；
+ * 线程数已经到最大值，才真正入队。队列本身仍然是有界的，容量可以在运行时调整。
+ * 只能和EagerThreadPoolExecutor一起使用。
+ * @Create: 2026-10-19 11:10
+ */
+public class EagerTaskQueue extends ResizableCapacityQueue<Runnable> {
+
+    private static final long serialVersionUID = 1L;
+
+    private volatile EagerThreadPoolExecutor executor;
+
+    public EagerTaskQueue(int capacity) {
+        super(capacity);
+    }
+
+    void setExecutor(EagerThreadPoolExecutor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean offer(Runnable runnable) {
+        EagerThreadPoolExecutor pool = executor;
+        if (pool == null) {
+            return super.offer(runnable);
+        }
+        int poolSize = pool.getPoolSize();
+        // 已提交未完成的任务数不超过线程数，说明有空闲线程在等任务
+        if (pool.getSubmittedCount() <= poolSize) {
+            return super.offer(runnable);
+        }
+        // 没有空闲线程，还能扩容就先扩容
+        if (poolSize < pool.getMaximumPoolSize()) {
+            return false;
+        }
+        return super.offer(runnable);
+    }
+
+    /**
+     * 线程池扩容失败（并发提交时已经达到最大线程数）后，再按普通队列的方式入队一次
+     * @param runnable 任务
+     * @return 队列满时返回false
+     */
+    boolean retryOffer(Runnable runnable) {
+        EagerThreadPoolExecutor pool = executor;
+        if (pool != null && pool.isShutdown()) {
+            return false;
+        }
+        return super.offer(runnable);
+    }
+}
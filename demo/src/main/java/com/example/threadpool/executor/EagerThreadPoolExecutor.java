@@ -0,0 +1,91 @@
+package com.example.threadpool.executor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @ClassName: EagerThreadPoolExecutor
+ * @Description: 优先扩容线程、其次排队、最后才拒绝的线程池
+ * ThreadPoolOOMController.better()原来的做法是重写队列的offer永远返回false，
+ * 再在拒绝策略里把任务塞回队列。这样做有两个问题：线程数没到最大值时也会走一遍拒绝流程；
+ * 真正的拒绝（队列也满了）被藏在了自定义拒绝策略里，外面的拒绝策略和监控都看不到。
+ * 这里把"队列知道线程池"做成正式的实现：EagerTaskQueue根据已提交未完成的任务数和线程数
+ * 决定是入队还是让线程池扩容；只有线程数到了最大值、队列也满了，才交给构造时传入的拒绝策略，
+ * 并且计入rejectedCount。
+ * @Create: 2026-10-19 11:25
+ */
+public class EagerThreadPoolExecutor extends ThreadPoolExecutor {
+
+    /**
+     * 已经提交、还没有执行完的任务数
+     */
+    private final AtomicInteger submittedCount = new AtomicInteger();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public EagerThreadPoolExecutor(int corePoolSize, int maximumPoolSize,
+                                   long keepAliveTime, TimeUnit unit,
+                                   EagerTaskQueue workQueue,
+                                   ThreadFactory threadFactory,
+                                   RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory,
+                new RetryOfferPolicy(handler));
+        workQueue.setExecutor(this);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        // 被拒绝的任务由RetryOfferPolicy把计数减回去
+        submittedCount.incrementAndGet();
+        super.execute(command);
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        submittedCount.decrementAndGet();
+        super.afterExecute(r, t);
+    }
+
+    public int getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * 线程数已经最大、队列也满了，交给拒绝策略的任务数
+     * @return long
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * 扩容失败时先按普通队列再入队一次，入队也失败才是真正的拒绝
+     */
+    private static class RetryOfferPolicy implements RejectedExecutionHandler {
+
+        private final RejectedExecutionHandler delegate;
+
+        RetryOfferPolicy(RejectedExecutionHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            EagerThreadPoolExecutor pool = (EagerThreadPoolExecutor) executor;
+            if (((EagerTaskQueue) pool.getQueue()).retryOffer(r)) {
+                return;
+            }
+            pool.rejectedCount.incrementAndGet();
+            // 任务没有进入线程池，不会经过afterExecute
+            pool.submittedCount.decrementAndGet();
+            delegate.rejectedExecution(r, executor);
+        }
+    }
+}
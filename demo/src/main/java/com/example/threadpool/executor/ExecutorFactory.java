@@ -0,0 +1,104 @@
+package com.example.threadpool.executor;
+
+import com.example.threadpool.monitor.ThreadPoolRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @ClassName: ExecutorFactory
+ * @Description: 按名称提供共享线程池（舱壁）
+ * 同一个名称永远拿到同一个线程池，第一次获取时创建并登记到ThreadPoolRegistry，应用关闭时统一关闭。
+ * 不同业务使用不同名称，一个业务把线程池占满不会影响另一个，这就是舱壁隔离。
+ * 拿到的线程池不允许调用方shutdown，防止某个调用方用完顺手关掉，其它共享的人跟着失败。
+ * @Create: 2026-10-21 17:30
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExecutorFactory {
+
+    private final ThreadPoolRegistry threadPoolRegistry;
+
+    private final Map<String, SharedThreadPoolExecutor> bulkheads = new ConcurrentHashMap<>();
+
+    /**
+     * 获取共享线程池，已经存在时忽略后面的参数；参数不一致时打印警告，需要调整请用/threadpoolmonitor/resize
+     * @param name 名称，线程名为bulkhead-名称-序号
+     * @param core 核心线程数
+     * @param max 最大线程数
+     * @param queueCapacity 队列容量
+     * @return 线程池
+     */
+    public ThreadPoolExecutor bulkhead(String name, int core, int max, int queueCapacity) {
+        SharedThreadPoolExecutor pool = bulkheads.computeIfAbsent(name, k -> {
+            SharedThreadPoolExecutor created = new SharedThreadPoolExecutor(core, max, queueCapacity,
+                    new ThreadFactoryBuilder().setNameFormat("bulkhead-" + name + "-%d").build());
+            threadPoolRegistry.register("bulkhead-" + name, created);
+            return created;
+        });
+        if (pool.requestedCore != core || pool.requestedMax != max || pool.requestedQueueCapacity != queueCapacity) {
+            log.warn("bulkhead {} already exists with core:{} max:{} queue:{}, ignore core:{} max:{} queue:{}",
+                    name, pool.requestedCore, pool.requestedMax, pool.requestedQueueCapacity, core, max, queueCapacity);
+        }
+        return pool;
+    }
+
+    /**
+     * 先停止接收新任务，给正在执行的任务10秒时间完成，再强制中断
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        bulkheads.values().forEach(SharedThreadPoolExecutor::release);
+        for (Map.Entry<String, SharedThreadPoolExecutor> entry : bulkheads.entrySet()) {
+            if (!entry.getValue().awaitTermination(10, TimeUnit.SECONDS)) {
+                List<Runnable> dropped = entry.getValue().releaseNow();
+                log.warn("bulkhead {} did not terminate in time, {} queued tasks dropped", entry.getKey(), dropped.size());
+            }
+        }
+    }
+
+    private static class SharedThreadPoolExecutor extends ThreadPoolExecutor {
+
+        private final int requestedCore;
+        private final int requestedMax;
+        private final int requestedQueueCapacity;
+
+        SharedThreadPoolExecutor(int core, int max, int queueCapacity, ThreadFactory threadFactory) {
+            super(core, max, 60, TimeUnit.SECONDS, new ResizableCapacityQueue<>(queueCapacity), threadFactory, new AbortPolicy());
+            this.requestedCore = core;
+            this.requestedMax = max;
+            this.requestedQueueCapacity = queueCapacity;
+        }
+
+        @Override
+        public void shutdown() {
+            throw new UnsupportedOperationException("shared bulkhead is managed by ExecutorFactory");
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            throw new UnsupportedOperationException("shared bulkhead is managed by ExecutorFactory");
+        }
+
+        /**
+         * 不叫close，JDK19起ExecutorService有public的close()，包级可见的同名方法在-Pjdk21下编译不过
+         */
+        void release() {
+            super.shutdown();
+        }
+
+        List<Runnable> releaseNow() {
+            return super.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.threadpool.executor;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * @ClassName: MemoryBoundedQueue
+ * @Description: 按字节数而不是任务个数限制积压的工作队列
+ * oom1里newFixedThreadPool的无界队列会一直积压任务直到堆内存耗尽；
+ * 换成ArrayBlockingQueue(10)又是按个数限制，任务大小相差几个数量级时，
+ * 10个1KB的任务和10个100MB的任务占用的内存完全不是一回事。
+ * 这个队列在入队时按任务的估算大小（SizedRunnable.estimatedBytes）占用预算，出队时归还，
+ * 预算不够就入队失败，交给拒绝策略做背压：BLOCK让提交线程等到有预算为止，CALLER_RUNS让提交线程自己执行。
+ * 队列为空时即使单个任务超过预算也允许入队，否则这个任务永远无法执行。
+ * 注意：submit会把任务包装成FutureTask，大小信息会丢失而按defaultTaskBytes计算，需要按大小限制的任务请用execute提交。
+ * @Create: 2026-10-19 16:20
+ */
+public class MemoryBoundedQueue extends LinkedBlockingQueue<Runnable> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 预算不足时的背压方式
+     */
+    public enum Backpressure {
+        /**
+         * 提交线程阻塞，直到有足够的预算
+         */
+        BLOCK,
+        /**
+         * 提交线程自己执行任务，相当于CallerRunsPolicy
+         */
+        CALLER_RUNS;
+
+        public RejectedExecutionHandler handler() {
+            if (this == CALLER_RUNS) {
+                return new ThreadPoolExecutor.CallerRunsPolicy();
+            }
+            return (r, executor) -> {
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("executor has been shut down");
+                }
+                try {
+                    executor.getQueue().put(r);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("interrupted while waiting for memory budget", e);
+                }
+            };
+        }
+    }
+
+    private final long budgetBytes;
+
+    private final ToLongFunction<Runnable> sizer;
+
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    private final AtomicLong peakBytes = new AtomicLong();
+
+    private final ReentrantLock budgetLock = new ReentrantLock();
+
+    private final Condition released = budgetLock.newCondition();
+
+    /**
+     * @param budgetBytes 队列中任务的总字节预算
+     * @param defaultTaskBytes 不是SizedRunnable的任务按这个大小计算
+     */
+    public MemoryBoundedQueue(long budgetBytes, long defaultTaskBytes) {
+        this(budgetBytes, task -> task instanceof SizedRunnable
+                ? ((SizedRunnable) task).estimatedBytes() : defaultTaskBytes);
+    }
+
+    /**
+     * @param budgetBytes 队列中任务的总字节预算
+     * @param sizer 估算任务大小，同一个任务入队和出队时必须返回相同的值
+     */
+    public MemoryBoundedQueue(long budgetBytes, ToLongFunction<Runnable> sizer) {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("budgetBytes must be positive: " + budgetBytes);
+        }
+        this.budgetBytes = budgetBytes;
+        this.sizer = sizer;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * 队列中任务占用字节数的历史最大值
+     * @return long
+     */
+    public long getPeakBytes() {
+        return peakBytes.get();
+    }
+
+    @Override
+    public boolean offer(Runnable task) {
+        long bytes = sizeOf(task);
+        budgetLock.lock();
+        try {
+            if (!fits(bytes)) {
+                return false;
+            }
+            acquire(bytes);
+            super.offer(task);
+            return true;
+        } finally {
+            budgetLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        long bytes = sizeOf(task);
+        long nanos = unit.toNanos(timeout);
+        budgetLock.lockInterruptibly();
+        try {
+            while (!fits(bytes)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = released.awaitNanos(nanos);
+            }
+            acquire(bytes);
+            super.offer(task);
+            return true;
+        } finally {
+            budgetLock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        long bytes = sizeOf(task);
+        budgetLock.lockInterruptibly();
+        try {
+            while (!fits(bytes)) {
+                released.await();
+            }
+            acquire(bytes);
+            super.offer(task);
+        } finally {
+            budgetLock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        return release(super.take());
+    }
+
+    @Override
+    public Runnable poll() {
+        return release(super.poll());
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return release(super.poll(timeout, unit));
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (super.remove(o)) {
+            release((Runnable) o);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        int count = 0;
+        Runnable task;
+        while (count < maxElements && (task = poll()) != null) {
+            c.add(task);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void clear() {
+        while (poll() != null) {
+            // poll里归还预算
+        }
+    }
+
+    /**
+     * ThreadPoolExecutor.purge通过迭代器删除已取消的任务，删除时同样要归还预算
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        Iterator<Runnable> iterator = super.iterator();
+        return new Iterator<Runnable>() {
+            private Runnable last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Runnable next() {
+                last = iterator.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+                release(last);
+            }
+        };
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return usedBytes.get() < budgetBytes ? Integer.MAX_VALUE : 0;
+    }
+
+    private long sizeOf(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        return Math.max(0, sizer.applyAsLong(task));
+    }
+
+    /**
+     * 调用方持有budgetLock
+     */
+    private boolean fits(long bytes) {
+        long used = usedBytes.get();
+        return used == 0 || used + bytes <= budgetBytes;
+    }
+
+    private void acquire(long bytes) {
+        long used = usedBytes.addAndGet(bytes);
+        long peak;
+        while (used > (peak = peakBytes.get()) && !peakBytes.compareAndSet(peak, used)) {
+            // 重试直到更新峰值
+        }
+    }
+
+    private Runnable release(Runnable task) {
+        if (task != null) {
+            usedBytes.addAndGet(-sizeOf(task));
+            budgetLock.lock();
+            try {
+                released.signalAll();
+            } finally {
+                budgetLock.unlock();
+            }
+        }
+        return task;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.threadpool.executor;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @ClassName: ResizableCapacityQueue
+ * @Description: 容量可以在运行时调整的阻塞队列
+ * ArrayBlockingQueue和LinkedBlockingQueue的容量在构造时就固定了，线程池的核心线程数和最大线程数
+ * 都可以动态修改，唯独队列长度改不了。这里在无界的LinkedBlockingQueue外面加一层容量检查，
+ * 所有入队操作在同一把锁下先检查size再入队，保证积压不会超过当前容量。
+ * 出队不经过这把锁，所以put在队列满时按10ms的间隔重新检查，而不是等出队通知。
+ * 调小容量不会丢弃已经在队列里的任务，只是在积压降下来之前拒绝新的任务。
+ * @Create: 2026-10-19 09:30
+ */
+public class ResizableCapacityQueue<E> extends LinkedBlockingQueue<E> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final ReentrantLock putLock = new ReentrantLock();
+
+    private final Condition notFull = putLock.newCondition();
+
+    private volatile int capacity;
+
+    public ResizableCapacityQueue(int capacity) {
+        super();
+        checkCapacity(capacity);
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        checkCapacity(capacity);
+        putLock.lock();
+        try {
+            this.capacity = capacity;
+            notFull.signalAll();
+        } finally {
+            putLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e) {
+        putLock.lock();
+        try {
+            return size() < capacity && super.offer(e);
+        } finally {
+            putLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        putLock.lockInterruptibly();
+        try {
+            while (size() >= capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                long waited = Math.min(nanos, RECHECK_NANOS);
+                notFull.awaitNanos(waited);
+                nanos -= waited;
+            }
+            return super.offer(e);
+        } finally {
+            putLock.unlock();
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        putLock.lockInterruptibly();
+        try {
+            while (size() >= capacity) {
+                notFull.awaitNanos(RECHECK_NANOS);
+            }
+            super.offer(e);
+        } finally {
+            putLock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - size());
+    }
+
+    private static void checkCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.threadpool.executor;
+
+/**
+ * @ClassName: SizedRunnable
+ * @Description: 带有内存占用估算的任务，提交到MemoryBoundedQueue时按这个大小计入预算
+ * @Create: 2026-10-19 16:10
+ */
+public interface SizedRunnable extends Runnable {
+
+    /**
+     * 任务在队列中等待时大约占用多少堆内存，包括它引用的payload
+     * @return 字节数
+     */
+    long estimatedBytes();
+
+    /**
+     * 给普通任务附上大小估算
+     * @param task 任务
+     * @param bytes 估算的字节数
+     * @return SizedRunnable
+     */
+    static SizedRunnable of(Runnable task, long bytes) {
+        return new SizedRunnable() {
+            @Override
+            public long estimatedBytes() {
+                return bytes;
+            }
+
+            @Override
+            public void run() {
+                task.run();
+            }
+
+            @Override
+            public String toString() {
+                return task + "(" + bytes + " bytes)";
+            }
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.threadpool.executor;
+
+/**
+ * @ClassName: TaskPriority
+ * @Description: 任务优先级，声明顺序就是紧急程度，越靠前越先执行
+ * @Create: 2026-10-22 14:00
+ */
+public enum TaskPriority {
+    /**
+     * 用户在等结果的交互请求
+     */
+    INTERACTIVE,
+    NORMAL,
+    /**
+     * 报表、同步这类可以晚一点的批量任务
+     */
+    BATCH
+}
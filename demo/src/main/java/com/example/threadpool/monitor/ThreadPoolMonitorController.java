@@ -0,0 +1,63 @@
+package com.example.threadpool.monitor;
+
+import com.example.threadpool.executor.AdaptivePoolSizer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @ClassName: ThreadPoolMonitorController
+ * @Description: 查看登记的线程池状态，运行时调整线程池参数
+ * 例如压测/threadpooloom/right时发现队列一直满，可以直接扩容，不用重启：
+ * /threadpoolmonitor/resize?name=right&core=5&max=10&queueCapacity=50
+ * @Create: 2026-10-19 10:30
+ */
+@RestController
+@RequestMapping("/threadpoolmonitor")
+@RequiredArgsConstructor
+public class ThreadPoolMonitorController {
+
+    private final ThreadPoolRegistry threadPoolRegistry;
+
+    private final AdaptivePoolSizer adaptivePoolSizer;
+
+    @GetMapping("/stats")
+    public Map<String, ThreadPoolRegistry.PoolStats> stats() {
+        return threadPoolRegistry.stats();
+    }
+
+    /**
+     * 最近一分钟内反复创建的线程池，次数多说明线程池没有复用
+     */
+    @GetMapping("/throwaway")
+    public Map<String, Integer> throwaway() {
+        return threadPoolRegistry.recentCreations();
+    }
+
+    /**
+     * 自动调整线程数的线程池：最近一个窗口的到达率、执行时间、CPU时间、排队时间，以及最近的调整记录
+     */
+    @GetMapping("/adaptive")
+    public Map<String, Object> adaptive() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("pools", adaptivePoolSizer.status());
+        result.put("decisions", adaptivePoolSizer.decisions());
+        return result;
+    }
+
+    @GetMapping("/resize")
+    public ThreadPoolRegistry.PoolStats resize(@RequestParam("name") String name,
+                                               @RequestParam(value = "core", required = false) Integer core,
+                                               @RequestParam(value = "max", required = false) Integer max,
+                                               @RequestParam(value = "queueCapacity", required = false) Integer queueCapacity) {
+        try {
+            return threadPoolRegistry.resize(name, core, max, queueCapacity);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
+    }
+}
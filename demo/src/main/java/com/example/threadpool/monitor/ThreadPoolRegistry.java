@@ -0,0 +1,263 @@
+package com.example.threadpool.monitor;
+
+import com.example.threadpool.executor.ResizableCapacityQueue;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @ClassName: ThreadPoolRegistry
+ * @Description: 线程池登记处
+ * 原来的printStats每调用一次就new一个newSingleThreadScheduledExecutor，而且从来不关闭，
+ * 每访问一次/threadpooloom下的接口就泄漏一个调度线程，监控本身成了线程泄漏的源头。
+ * 现在所有线程池按名称登记到这里，由一个共享的采样线程每秒采集一次线程数、活跃线程数、
+ * 完成任务数和队列积压（和上一秒相比有变化才打印日志），线程池终止后自动移除。
+ * 还可以在运行时调整核心线程数、最大线程数，以及ResizableCapacityQueue的队列容量。
+ * 同一个名称一分钟内登记超过THROWAWAY_THRESHOLD次，说明代码在按请求创建一次性线程池，打印警告，
+ * 这类线程池应该改用ExecutorFactory提供的共享线程池。
+ * @Create: 2026-10-19 09:50
+ */
+@Slf4j
+@Component
+public class ThreadPoolRegistry {
+
+    private final Map<String, ThreadPoolExecutor> pools = new ConcurrentHashMap<>();
+
+    private final Map<String, PoolStats> latest = new ConcurrentHashMap<>();
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    /**
+     * 一分钟内同名线程池创建次数达到这个值就警告
+     */
+    private static final int THROWAWAY_THRESHOLD = 10;
+
+    private static final long THROWAWAY_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Map<String, Deque<Long>> creations = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> lastWarned = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService sampler;
+
+    @PostConstruct
+    public void start() {
+        sampler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("threadpool-sampler").setDaemon(true).build());
+        sampler.scheduleAtFixedRate(this::sample, 0, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        sampler.shutdownNow();
+    }
+
+    /**
+     * 登记线程池。同名的线程池还没终止时，新登记的加上序号，避免互相覆盖
+     * @param name 名称
+     * @param threadPool 线程池
+     * @return 实际登记的名称，调整参数时使用
+     */
+    public String register(String name, ThreadPoolExecutor threadPool) {
+        recordCreation(name);
+        String key = name;
+        while (true) {
+            ThreadPoolExecutor existing = pools.putIfAbsent(key, threadPool);
+            if (existing == null) {
+                log.info("thread pool registered: {}", key);
+                return key;
+            }
+            if (existing.isTerminated() && pools.replace(key, existing, threadPool)) {
+                log.info("thread pool registered: {}", key);
+                return key;
+            }
+            key = name + "-" + sequence.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return 最近一分钟内每个名称登记的次数，只包含登记过不止一次的
+     */
+    public Map<String, Integer> recentCreations() {
+        long now = System.currentTimeMillis();
+        Map<String, Integer> result = new TreeMap<>();
+        creations.forEach((name, times) -> {
+            synchronized (times) {
+                prune(times, now);
+                if (times.size() > 1) {
+                    result.put(name, times.size());
+                }
+            }
+        });
+        return result;
+    }
+
+    private void recordCreation(String name) {
+        long now = System.currentTimeMillis();
+        Deque<Long> times = creations.computeIfAbsent(name, k -> new ArrayDeque<>());
+        int count;
+        synchronized (times) {
+            times.addLast(now);
+            prune(times, now);
+            count = times.size();
+        }
+        if (count >= THROWAWAY_THRESHOLD) {
+            Long warned = lastWarned.get(name);
+            // 并发时可能重复警告一次，无伤大雅
+            if (warned == null || now - warned >= THROWAWAY_WINDOW_MILLIS) {
+                lastWarned.put(name, now);
+                log.warn("thread pool '{}' created {} times in the last minute, threads are not being reused; "
+                        + "use a shared pool from ExecutorFactory instead", name, count);
+            }
+        }
+    }
+
+    private static void prune(Deque<Long> times, long now) {
+        while (!times.isEmpty() && now - times.peekFirst() > THROWAWAY_WINDOW_MILLIS) {
+            times.removeFirst();
+        }
+    }
+
+    public void unregister(String name) {
+        pools.remove(name);
+        latest.remove(name);
+    }
+
+    public ThreadPoolExecutor get(String name) {
+        return pools.get(name);
+    }
+
+    /**
+     * 采样线程最近一次采集到的所有线程池状态，按名称排序
+     * @return Map
+     */
+    public Map<String, PoolStats> stats() {
+        return new TreeMap<>(latest);
+    }
+
+    /**
+     * 调整线程池参数，参数为null表示不修改
+     * 先后顺序很重要：扩大时先调最大线程数再调核心线程数，缩小时反过来，
+     * 否则JDK9以后会因为核心线程数暂时大于最大线程数而抛IllegalArgumentException
+     * @param name 登记名称
+     * @param core 核心线程数
+     * @param max 最大线程数
+     * @param queueCapacity 队列容量，只支持ResizableCapacityQueue
+     * @return 调整后的状态
+     */
+    public PoolStats resize(String name, Integer core, Integer max, Integer queueCapacity) {
+        ThreadPoolExecutor pool = pools.get(name);
+        if (pool == null) {
+            throw new IllegalArgumentException("thread pool not found: " + name);
+        }
+        if (queueCapacity != null && !(pool.getQueue() instanceof ResizableCapacityQueue)) {
+            throw new IllegalArgumentException("queue of " + name + " is not resizable: "
+                    + pool.getQueue().getClass().getName());
+        }
+        synchronized (pool) {
+            int newCore = core != null ? core : pool.getCorePoolSize();
+            int newMax = max != null ? max : pool.getMaximumPoolSize();
+            if (newCore < 0 || newMax <= 0 || newCore > newMax) {
+                throw new IllegalArgumentException("invalid pool size core:" + newCore + " max:" + newMax);
+            }
+            if (newMax >= pool.getMaximumPoolSize()) {
+                pool.setMaximumPoolSize(newMax);
+                pool.setCorePoolSize(newCore);
+            } else {
+                pool.setCorePoolSize(newCore);
+                pool.setMaximumPoolSize(newMax);
+            }
+            if (queueCapacity != null) {
+                ((ResizableCapacityQueue<Runnable>) pool.getQueue()).setCapacity(queueCapacity);
+            }
+        }
+        PoolStats stats = new PoolStats(pool);
+        log.info("thread pool {} resized: {}", name, stats);
+        return stats;
+    }
+
+    /**
+     * 由唯一的采样线程每秒执行一次
+     */
+    private void sample() {
+        try {
+            pools.forEach((name, pool) -> {
+                if (pool.isTerminated()) {
+                    pools.remove(name, pool);
+                    latest.remove(name);
+                    log.info("thread pool terminated, unregistered: {}", name);
+                    return;
+                }
+                PoolStats stats = new PoolStats(pool);
+                PoolStats previous = latest.put(name, stats);
+                // ExecutorFactory的舱壁线程池不会终止，空闲时每秒一行一模一样的日志没有意义，只在有变化时打印
+                if (previous == null || !stats.sameAs(previous)) {
+                    log.info("[{}] {}", name, stats);
+                }
+            });
+        } catch (Exception ex) {
+            // 采样异常不能让调度任务终止
+            log.error("thread pool sampling failed", ex);
+        }
+    }
+
+    @Getter
+    public static class PoolStats {
+        /**
+         * 线程数
+         */
+        private final int poolSize;
+        /**
+         * 线程活跃数
+         */
+        private final int activeCount;
+        /**
+         * 完成了多少任务
+         */
+        private final long completedTaskCount;
+        /**
+         * 队列中还有多少积压任务
+         */
+        private final int queueSize;
+        private final int remainingCapacity;
+        private final int corePoolSize;
+        private final int maximumPoolSize;
+        private final int largestPoolSize;
+
+        PoolStats(ThreadPoolExecutor pool) {
+            this.poolSize = pool.getPoolSize();
+            this.activeCount = pool.getActiveCount();
+            this.completedTaskCount = pool.getCompletedTaskCount();
+            this.queueSize = pool.getQueue().size();
+            this.remainingCapacity = pool.getQueue().remainingCapacity();
+            this.corePoolSize = pool.getCorePoolSize();
+            this.maximumPoolSize = pool.getMaximumPoolSize();
+            this.largestPoolSize = pool.getLargestPoolSize();
+        }
+
+        /**
+         * 日志里打印的几项是否都没有变化
+         */
+        boolean sameAs(PoolStats other) {
+            return poolSize == other.poolSize && activeCount == other.activeCount
+                    && completedTaskCount == other.completedTaskCount && queueSize == other.queueSize;
+        }
+
+        @Override
+        public String toString() {
+            return "Pool Size: " + poolSize + ", Active Threads: " + activeCount
+                    + ", Number of Tasks Completed: " + completedTaskCount
+                    + ", Number of Tasks in Queue: " + queueSize;
+        }
+    }
+}
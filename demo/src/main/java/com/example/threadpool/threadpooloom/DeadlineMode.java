@@ -0,0 +1,17 @@
+package com.example.threadpool.threadpooloom;
+
+/**
+ * @ClassName: DeadlineMode
+ * @Description: /threadpooloom/deadline 对比的两种调度方式
+ * @Create: 2026-10-22 15:00
+ */
+public enum DeadlineMode {
+    /**
+     * 普通的ThreadPoolExecutor和有界队列，AbortPolicy
+     */
+    FIFO,
+    /**
+     * DeadlineThreadPoolExecutor，按优先级和截止时间调度
+     */
+    PRIORITY
+}
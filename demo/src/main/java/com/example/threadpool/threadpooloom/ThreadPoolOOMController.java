@@ -1,15 +1,46 @@
 package com.example.threadpool.threadpooloom;
 
 
+import com.example.concurrenttool.context.ContextPropagatingThreadPoolExecutor;
+import com.example.concurrenttool.context.UserContextHolder;
+import com.example.lock.monitor.LatencyHistogram;
+import com.example.threadpool.executor.AdaptivePolicy;
+import com.example.threadpool.executor.AdaptivePoolSizer;
+import com.example.threadpool.executor.AdaptiveThreadPoolExecutor;
+import com.example.threadpool.executor.DeadlineTaskQueue;
+import com.example.threadpool.executor.DeadlineThreadPoolExecutor;
+import com.example.threadpool.executor.DiskOverflowQueue;
+import com.example.threadpool.executor.EagerTaskQueue;
+import com.example.threadpool.executor.EagerThreadPoolExecutor;
+import com.example.threadpool.executor.MemoryBoundedQueue;
+import com.example.threadpool.executor.ResizableCapacityQueue;
+import com.example.threadpool.executor.SizedRunnable;
+import com.example.threadpool.executor.TaskPriority;
+import com.example.threadpool.monitor.ThreadPoolRegistry;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -21,26 +52,27 @@ import java.util.stream.IntStream;
 @Slf4j
 @RestController
 @RequestMapping("/threadpooloom")
+@RequiredArgsConstructor
 public class ThreadPoolOOMController {
 
     /**
      * 打印线程池的信息 线程池线程管理策略详解
-     * 用一个 printStats 方法实现了最简陋的监控
-     * @param threadPool 线程池
+     * 原来用一个 printStats 方法实现了最简陋的监控，但每次调用都会创建一个不关闭的调度线程池，
+     * 现在统一登记到ThreadPoolRegistry，由一个共享的采样线程打印，见 /threadpoolmonitor/stats
      */
-    private void printStats(ThreadPoolExecutor threadPool) {
-        Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(() -> {
-            log.info("=========================");
-            // 线程数
-            log.info("Pool Size: {}", threadPool.getPoolSize());
-            // 线程活跃数
-            log.info("Active Threads: {}", threadPool.getActiveCount());
-            // 完成了多少任务
-            log.info("Number of Tasks Completed: {}", threadPool.getCompletedTaskCount());
-            // 队列中还有多少积压任务
-            log.info("Number of Tasks in Queue: {}", threadPool.getQueue().size());
-            log.info("=========================");
-        }, 0, 1, TimeUnit.SECONDS);
+    private final ThreadPoolRegistry threadPoolRegistry;
+
+    private final AdaptivePoolSizer adaptivePoolSizer;
+
+    /**
+     * 异步版本的接口用这个定时器按节奏提交任务，代替在请求线程上sleep
+     */
+    private final ScheduledExecutorService submitTimer = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("threadpooloom-timer").setDaemon(true).build());
+
+    @PreDestroy
+    public void shutdownTimer() {
+        submitTimer.shutdownNow();
     }
 
     /**
@@ -60,20 +92,9 @@ public class ThreadPoolOOMController {
     @GetMapping("oom1")
     public void oom1() throws InterruptedException {
         ThreadPoolExecutor threadPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
-        printStats(threadPool);
+        threadPoolRegistry.register("oom1", threadPool);
         for (int i = 0; i < 100000000; i++) {
-            threadPool.execute(() -> {
-                String payload = IntStream.rangeClosed(1, 1000000)
-                        .mapToObj(__ -> "a")
-                        .collect(Collectors.joining(""))
-                        + UUID.randomUUID().toString();
-                try {
-                    TimeUnit.HOURS.sleep(1);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-                log.info(payload);
-            });
+            threadPool.execute(ThreadPoolOOMController::oomTask);
         }
         threadPool.shutdown();
         threadPool.awaitTermination(1, TimeUnit.HOURS);
@@ -92,20 +113,9 @@ public class ThreadPoolOOMController {
     @GetMapping("oom2")
     public void oom2() throws InterruptedException {
         ThreadPoolExecutor threadPool = (ThreadPoolExecutor) Executors.newCachedThreadPool();
-        printStats(threadPool);
+        threadPoolRegistry.register("oom2", threadPool);
         for (int i = 0; i < 100000000; i++) {
-            threadPool.execute(() -> {
-                String payload = IntStream.rangeClosed(1, 1000000)
-                        .mapToObj(__ -> "a")
-                        .collect(Collectors.joining(""))
-                        + UUID.randomUUID().toString();
-                try {
-                    TimeUnit.HOURS.sleep(1);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-                log.info(payload);
-            });
+            threadPool.execute(ThreadPoolOOMController::oomTask);
         }
         threadPool.shutdown();
         threadPool.awaitTermination(1, TimeUnit.HOURS);
@@ -125,14 +135,16 @@ public class ThreadPoolOOMController {
     public int right() throws InterruptedException {
         // 使用一个计数器跟踪完成的任务
         AtomicInteger atomicInteger = new AtomicInteger();
-        // 2个核心线程，5个最大线程，容量为10的ArrayBlockingQueue阻塞队列
-        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(2, 5,
+        // 2个核心线程，5个最大线程，容量为10的阻塞队列
+        // 队列使用ResizableCapacityQueue代替ArrayBlockingQueue，行为一致，但容量可以通过/threadpoolmonitor/resize调整
+        // 任务在请求线程上submit，ContextPropagatingThreadPoolExecutor把请求的用户上下文带进工作线程，slowTask的日志里能看到是哪个用户提交的
+        ThreadPoolExecutor threadPool = new ContextPropagatingThreadPoolExecutor(2, 5,
                 5, TimeUnit.SECONDS,
-                new ArrayBlockingQueue<>(10),
+                new ResizableCapacityQueue<>(10),
                 new ThreadFactoryBuilder().setNameFormat("oom-thread-pool-%d").build(),
                 new ThreadPoolExecutor.AbortPolicy());
 
-        printStats(threadPool);
+        threadPoolRegistry.register("right", threadPool);
         // 每隔一秒提交一次，一共提交20次
         IntStream.rangeClosed(1, 20).forEach(i -> {
             try {
@@ -142,16 +154,8 @@ public class ThreadPoolOOMController {
             }
             int id = atomicInteger.incrementAndGet();
             try {
-                threadPool.submit(() -> {
-                    log.info("{} started", id);
-                    // 每个任务执行10秒
-                    try {
-                        TimeUnit.SECONDS.sleep(10);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                    log.info("{} finished", id);
-                });
+                // 每个任务执行10秒
+                threadPool.submit(() -> slowTask(id));
             }catch (Exception ex){
                 // 如果出现异常，打印错误信息且计数器减1
                 log.error("error submitting task {}", id, ex);
@@ -159,6 +163,8 @@ public class ThreadPoolOOMController {
             }
         });
         TimeUnit.SECONDS.sleep(60);
+        // 线程池用完要关闭，终止后会自动从ThreadPoolRegistry移除
+        threadPool.shutdown();
         return atomicInteger.intValue();
     }
 
@@ -184,33 +190,22 @@ public class ThreadPoolOOMController {
      * 2. 由于我们 Hack 了队列，在达到了最大线程后势必会触发拒绝策略，
      * 那么能否实现一个自定义的拒绝策略处理程序，这个时候再把任务真正插入队列呢？
      *
+     * 这个Hack的问题在于：线程数没到最大值时每次扩容都要先走一遍拒绝流程；
+     * 真正的拒绝被藏在自定义拒绝策略里，外面既换不了拒绝策略也统计不到拒绝次数。
+     * 现在把它做成了正式的实现EagerThreadPoolExecutor：由EagerTaskQueue根据线程池状态决定
+     * 入队还是扩容，线程到最大值、队列也满了才交给AbortPolicy，并且记录拒绝次数。
      */
     @GetMapping("better")
     public int better()throws InterruptedException{
         // 这里开始是激进线程池的实现
-        BlockingQueue<Runnable> queue = new LinkedBlockingQueue<Runnable>(10) {
-            @Override
-            public boolean offer(Runnable e) {
-                // 先返回false，造成队列满的假象，让线程池优先扩容
-                return false;
-            }
-        };
-        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(
+        EagerThreadPoolExecutor threadPool = new EagerThreadPoolExecutor(
                 2, 5,
                 5, TimeUnit.SECONDS,
-                queue, new ThreadFactoryBuilder().setNameFormat("demo-threadpool-%d").build(), (r, executor) -> {
-            try {
-                // 等出现拒绝后再加入队列
-                // 如果希望队列满了阻塞线程而不是抛出异常，那么可以注释掉下面三行代码，修改为executor.getQueue().put(r);
-                if (!executor.getQueue().offer(r, 0, TimeUnit.SECONDS)) {
-                    throw new RejectedExecutionException("ThreadPool queue full, failed to offer " + r.toString());
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        });
+                new EagerTaskQueue(10),
+                new ThreadFactoryBuilder().setNameFormat("demo-threadpool-%d").build(),
+                new ThreadPoolExecutor.AbortPolicy());
         // 激进线程池实现结束
-        printStats(threadPool);
+        threadPoolRegistry.register("better", threadPool);
         //任务编号计数器
         AtomicInteger atomicInteger = new AtomicInteger();
         //每秒提交一个任务，每个任务耗时10秒执行完成，一共提交20个任务
@@ -222,14 +217,7 @@ public class ThreadPoolOOMController {
             }
             int id = atomicInteger.incrementAndGet();
             try {
-                threadPool.submit(() -> {
-                    log.info("{} started", id);
-                    try {
-                        TimeUnit.SECONDS.sleep(10);
-                    } catch (InterruptedException e) {
-                    }
-                    log.info("{} finished", id);
-                });
+                threadPool.submit(() -> slowTask(id));
             } catch (Exception ex) {
                 log.error("error submitting task {}", id, ex);
                 atomicInteger.decrementAndGet();
@@ -237,6 +225,525 @@ public class ThreadPoolOOMController {
         });
 
         TimeUnit.SECONDS.sleep(60);
+        log.info("better rejected:{}, largestPoolSize:{}", threadPool.getRejectedCount(), threadPool.getLargestPoolSize());
+        // 线程池用完要关闭，终止后会自动从ThreadPoolRegistry移除
+        threadPool.shutdown();
         return atomicInteger.intValue();
     }
+
+    /**
+     * 同步版本的right和better要在Tomcat工作线程上睡80秒，oom1和oom2更是在awaitTermination里等1小时，
+     * 几个并发请求就能占满连接器的工作线程。异步版本返回DeferredResult，请求线程立即归还给Tomcat：
+     * 提交交给submitTimer按节奏执行，任务用CompletableFuture跟踪，被接受的任务全部完成时才写回响应，
+     * 不再靠固定sleep 60秒去“猜”任务已经结束。
+     */
+    @GetMapping("right/async")
+    public DeferredResult<Integer> rightAsync() {
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(2, 5,
+                5, TimeUnit.SECONDS,
+                new ResizableCapacityQueue<>(10),
+                new ThreadFactoryBuilder().setNameFormat("oom-async-thread-pool-%d").build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        threadPoolRegistry.register("right-async", threadPool);
+        return toDeferredResult(submitEverySecond(threadPool, 20, id -> () -> slowTask(id)), 120_000, () -> -1);
+    }
+
+    @GetMapping("better/async")
+    public DeferredResult<Integer> betterAsync() {
+        EagerThreadPoolExecutor threadPool = new EagerThreadPoolExecutor(
+                2, 5,
+                5, TimeUnit.SECONDS,
+                new EagerTaskQueue(10),
+                new ThreadFactoryBuilder().setNameFormat("demo-async-threadpool-%d").build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        threadPoolRegistry.register("better-async", threadPool);
+        CompletableFuture<Integer> accepted = submitEverySecond(threadPool, 20, id -> () -> slowTask(id));
+        accepted.thenRun(() -> log.info("better async rejected:{}, largestPoolSize:{}",
+                threadPool.getRejectedCount(), threadPool.getLargestPoolSize()));
+        return toDeferredResult(accepted, 120_000, () -> -1);
+    }
+
+    /**
+     * oom1的异步版本，线程池和任务的问题原样保留，只是不再占用请求线程：
+     * 定时器每10毫秒提交一批，直到提交满1亿个或线程池被关闭；1小时后返回当时的积压情况。
+     * 客户端提前断开时Tomcat不一定能马上感知，提交会持续到超时，可以用/threadpoolmonitor/stats观察积压
+     */
+    @GetMapping("oom1/async")
+    public DeferredResult<Map<String, Object>> oom1Async() {
+        ThreadPoolExecutor threadPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+        threadPoolRegistry.register("oom1-async", threadPool);
+        return floodAsync(threadPool);
+    }
+
+    @GetMapping("oom2/async")
+    public DeferredResult<Map<String, Object>> oom2Async() {
+        ThreadPoolExecutor threadPool = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+        threadPoolRegistry.register("oom2-async", threadPool);
+        return floodAsync(threadPool);
+    }
+
+    /**
+     * 每秒提交一个任务，被拒绝的不计数
+     * @return 所有被接受的任务执行完成后，完成被接受的任务数，线程池随后关闭
+     */
+    private CompletableFuture<Integer> submitEverySecond(ThreadPoolExecutor threadPool, int count, IntFunction<Runnable> taskFactory) {
+        List<CompletableFuture<Boolean>> submissions = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            int id = i;
+            CompletableFuture<Boolean> submission = new CompletableFuture<>();
+            submissions.add(submission);
+            submitTimer.schedule(() -> {
+                try {
+                    CompletableFuture.runAsync(taskFactory.apply(id), threadPool)
+                            .whenComplete((r, ex) -> submission.complete(true));
+                } catch (RejectedExecutionException ex) {
+                    log.error("error submitting task {}", id, ex);
+                    submission.complete(false);
+                }
+            }, i, TimeUnit.SECONDS);
+        }
+        return CompletableFuture.allOf(submissions.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> (int) submissions.stream().filter(CompletableFuture::join).count())
+                .whenComplete((r, ex) -> threadPool.shutdown());
+    }
+
+    private DeferredResult<Map<String, Object>> floodAsync(ThreadPoolExecutor threadPool) {
+        int total = 100000000;
+        int batch = 10000;
+        AtomicInteger submitted = new AtomicInteger();
+        Supplier<Map<String, Object>> stats = () -> {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("submitted", submitted.get());
+            result.put("poolSize", threadPool.getPoolSize());
+            result.put("queueSize", threadPool.getQueue().size());
+            result.put("completed", threadPool.getCompletedTaskCount());
+            return result;
+        };
+        CompletableFuture<Map<String, Object>> done = new CompletableFuture<>();
+        // 线程池关闭后按100毫秒轮询是否已经终止，不占用任何线程等待awaitTermination
+        Runnable awaitTermination = new Runnable() {
+            @Override
+            public void run() {
+                if (done.isDone()) {
+                    return;
+                }
+                if (threadPool.isTerminated()) {
+                    done.complete(stats.get());
+                } else {
+                    submitTimer.schedule(this, 100, TimeUnit.MILLISECONDS);
+                }
+            }
+        };
+        // 每批提交完就让出共享的submitTimer，其它异步接口的提交可以插在两批之间
+        Runnable submitBatch = new Runnable() {
+            @Override
+            public void run() {
+                if (done.isDone() || threadPool.isShutdown()) {
+                    return;
+                }
+                try {
+                    for (int i = 0; i < batch && submitted.get() < total; i++) {
+                        threadPool.execute(ThreadPoolOOMController::oomTask);
+                        submitted.incrementAndGet();
+                    }
+                } catch (Throwable ex) {
+                    // 包括OutOfMemoryError：提交不动了就停止，让请求带着当前状态返回
+                    log.error("flood stopped after {} tasks", submitted.get(), ex);
+                    threadPool.shutdownNow();
+                    done.complete(stats.get());
+                    return;
+                }
+                if (submitted.get() < total) {
+                    submitTimer.schedule(this, 10, TimeUnit.MILLISECONDS);
+                } else {
+                    threadPool.shutdown();
+                    awaitTermination.run();
+                }
+            }
+        };
+        submitTimer.execute(submitBatch);
+        DeferredResult<Map<String, Object>> result = toDeferredResult(done, TimeUnit.HOURS.toMillis(1), stats);
+        // 超时或客户端断开后停止提交并回收线程池
+        result.onCompletion(() -> {
+            done.complete(stats.get());
+            threadPool.shutdownNow();
+        });
+        return result;
+    }
+
+    private static <T> DeferredResult<T> toDeferredResult(CompletableFuture<T> future, long timeoutMillis, Supplier<T> onTimeout) {
+        DeferredResult<T> result = new DeferredResult<>(timeoutMillis);
+        result.onTimeout(() -> result.setResult(onTimeout.get()));
+        future.whenComplete((value, ex) -> {
+            if (ex != null) {
+                result.setErrorResult(ex);
+            } else {
+                result.setResult(value);
+            }
+        });
+        return result;
+    }
+
+    private static void slowTask(int id) {
+        log.info("{} started, user:{}", id, UserContextHolder.current());
+        blockingWork(TimeUnit.SECONDS.toMillis(10));
+        log.info("{} finished", id);
+    }
+
+    /**
+     * slowTask的主体：睡眠模拟阻塞IO，被中断时恢复中断标记后返回。
+     * 虚拟线程的对比（BlockingScenario.POOL_TASK）也直接调用它
+     * @param millis 睡眠的毫秒数
+     */
+    public static void blockingWork(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 先用装箱的流拼出一个100万字符的大字符串，再睡1小时，任务执行期间这个字符串一直占着内存
+     */
+    private static void oomTask() {
+        String payload = IntStream.rangeClosed(1, 1000000)
+                .mapToObj(__ -> "a")
+                .collect(Collectors.joining(""))
+                + UUID.randomUUID().toString();
+        try {
+            TimeUnit.HOURS.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info(payload);
+    }
+
+    /**
+     * oom1的问题在于队列只按个数限制（而且是无界的），而任务的大小可能相差几个数量级。
+     * 这里每个任务在提交时就带着1KB到4MB不等的payload，用MemoryBoundedQueue按字节预算限制积压：
+     * 预算用完后，BLOCK让提交线程等待，CALLER_RUNS让提交线程自己执行，
+     * 无论提交得多快，队列里积压的payload总量都不会明显超过预算（队列为空时允许一个超大任务入队）。
+     * @param tasks 提交的任务数
+     * @param budgetMb 队列的内存预算
+     * @param backpressure 预算不足时的背压方式
+     * @return 队列峰值字节数、提交线程自己执行的任务数等
+     */
+    @GetMapping("memorybudget")
+    public Map<String, Object> memoryBudget(@RequestParam(value = "tasks", defaultValue = "200") int tasks,
+                                            @RequestParam(value = "budgetMb", defaultValue = "16") int budgetMb,
+                                            @RequestParam(value = "backpressure", defaultValue = "BLOCK") MemoryBoundedQueue.Backpressure backpressure)
+            throws InterruptedException {
+        MemoryBoundedQueue queue = new MemoryBoundedQueue(budgetMb * 1024L * 1024L, 1024);
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(2, 2,
+                0, TimeUnit.SECONDS,
+                queue,
+                new ThreadFactoryBuilder().setNameFormat("memorybudget-pool-%d").build(),
+                backpressure.handler());
+        threadPoolRegistry.register("memorybudget", threadPool);
+        Thread submitter = Thread.currentThread();
+        AtomicInteger callerRuns = new AtomicInteger();
+        long begin = System.currentTimeMillis();
+        for (int i = 0; i < tasks; i++) {
+            // 1KB到4MB，大小相差4000多倍
+            byte[] payload = new byte[1024 << ThreadLocalRandom.current().nextInt(13)];
+            threadPool.execute(SizedRunnable.of(() -> {
+                if (Thread.currentThread() == submitter) {
+                    callerRuns.incrementAndGet();
+                }
+                try {
+                    TimeUnit.MILLISECONDS.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                log.debug("payload:{}", payload.length);
+            }, payload.length));
+        }
+        threadPool.shutdown();
+        threadPool.awaitTermination(1, TimeUnit.HOURS);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("tasks", tasks);
+        result.put("backpressure", backpressure);
+        result.put("budgetBytes", queue.getBudgetBytes());
+        result.put("peakQueuedBytes", queue.getPeakBytes());
+        result.put("callerRuns", callerRuns.get());
+        result.put("tookMs", System.currentTimeMillis() - begin);
+        log.info("memory budget: {}", result);
+        return result;
+    }
+
+    /**
+     * right()里交互请求和批量任务混在一个线程池：队列满了不管多急都被拒绝，排上队的也要等前面10秒的任务。
+     * 这里用和right()一样的2个核心线程、5个最大线程、容量10的队列，每50毫秒提交一个20毫秒的交互任务，每200毫秒提交一个1秒的批量任务，
+     * 交互任务要求在deadlineMs内开始执行：
+     * FIFO      普通的ThreadPoolExecutor和有界队列，AbortPolicy
+     * PRIORITY  DeadlineThreadPoolExecutor，交互任务插到批量任务前面，队列满时挤掉批量任务，过了截止时间的直接丢弃
+     * 对比两种方式下交互任务的完成数、迟到数（执行完时已经过了截止时间）和端到端延迟
+     * @param mode FIFO或PRIORITY
+     * @param rounds 提交轮数
+     * @param deadlineMs 交互任务的截止时间
+     * @return 按任务类型统计的结果
+     */
+    @GetMapping("deadline")
+    public Map<String, Object> deadline(@RequestParam(value = "mode", defaultValue = "PRIORITY") DeadlineMode mode,
+                                        @RequestParam(value = "rounds", defaultValue = "60") int rounds,
+                                        @RequestParam(value = "deadlineMs", defaultValue = "500") long deadlineMs)
+            throws InterruptedException {
+        boolean prioritized = mode == DeadlineMode.PRIORITY;
+        ThreadPoolExecutor threadPool = prioritized
+                ? new DeadlineThreadPoolExecutor(2, 5, 5, TimeUnit.SECONDS, new DeadlineTaskQueue(10),
+                new ThreadFactoryBuilder().setNameFormat("deadline-pool-%d").build())
+                : new ThreadPoolExecutor(2, 5, 5, TimeUnit.SECONDS, new ArrayBlockingQueue<>(10),
+                new ThreadFactoryBuilder().setNameFormat("deadline-fifo-pool-%d").build(), new ThreadPoolExecutor.AbortPolicy());
+        threadPoolRegistry.register("deadline", threadPool);
+        Map<TaskPriority, LatencyHistogram> latency = new EnumMap<>(TaskPriority.class);
+        Map<TaskPriority, Map<String, AtomicInteger>> outcomes = new EnumMap<>(TaskPriority.class);
+        for (TaskPriority priority : new TaskPriority[]{TaskPriority.INTERACTIVE, TaskPriority.BATCH}) {
+            latency.put(priority, new LatencyHistogram());
+            Map<String, AtomicInteger> counters = new LinkedHashMap<>();
+            for (String outcome : new String[]{"onTime", "late", "dropped", "rejected"}) {
+                counters.put(outcome, new AtomicInteger());
+            }
+            outcomes.put(priority, counters);
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < rounds; i++) {
+            if (i % 4 == 0) {
+                futures.add(submitTracked(threadPool, TaskPriority.BATCH, 1000, 60_000, latency, outcomes));
+            }
+            futures.add(submitTracked(threadPool, TaskPriority.INTERACTIVE, 20, deadlineMs, latency, outcomes));
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).handle((r, ex) -> null).join();
+        threadPool.shutdown();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", mode);
+        outcomes.forEach((priority, counters) -> {
+            Map<String, Object> stat = new LinkedHashMap<>(counters);
+            stat.put("latency", latency.get(priority).snapshot());
+            result.put(priority.name(), stat);
+        });
+        if (prioritized) {
+            result.put("executor", ((DeadlineThreadPoolExecutor) threadPool).stats());
+        }
+        log.info("deadline: {}", result);
+        return result;
+    }
+
+    /**
+     * 提交一个sleep workMs的任务，按结果分类计数：按时完成、完成时已过截止时间、开始前超时被丢弃、被拒绝或挤掉
+     */
+    private static CompletableFuture<Void> submitTracked(ThreadPoolExecutor threadPool, TaskPriority priority, long workMs, long deadlineMs,
+                                                         Map<TaskPriority, LatencyHistogram> latency,
+                                                         Map<TaskPriority, Map<String, AtomicInteger>> outcomes) {
+        long submitted = System.nanoTime();
+        Runnable task = () -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(workMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        CompletableFuture<Void> future;
+        if (threadPool instanceof DeadlineThreadPoolExecutor) {
+            future = ((DeadlineThreadPoolExecutor) threadPool).submit(task, priority, deadlineMs, TimeUnit.MILLISECONDS);
+        } else {
+            try {
+                future = CompletableFuture.runAsync(task, threadPool);
+            } catch (RejectedExecutionException ex) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(ex);
+            }
+        }
+        Map<String, AtomicInteger> counters = outcomes.get(priority);
+        return future.whenComplete((r, ex) -> {
+            long took = System.nanoTime() - submitted;
+            Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+            if (cause == null) {
+                latency.get(priority).record(took);
+                counters.get(TimeUnit.NANOSECONDS.toMillis(took) <= deadlineMs + workMs ? "onTime" : "late").incrementAndGet();
+            } else if (cause instanceof TimeoutException) {
+                counters.get("dropped").incrementAndGet();
+            } else {
+                counters.get("rejected").incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * right()的2、5、10是拍脑袋的配置，这里同样每秒提交一个10秒的任务，一共20个，
+     * 但核心线程数交给AdaptivePoolSizer按到达率和执行时间调整（下界2、上界20），队列仍然是10。
+     * 第一个任务完成前不知道执行时间，线程全忙且有积压时线程数翻倍；之后按利特尔法则 1/s × 10s ÷ 0.75 ≈ 14 个线程。
+     * 不像right()那样固定等60秒，任务全部结束就返回
+     * @return 完成的任务数和调整记录
+     */
+    @GetMapping("adaptive")
+    public Map<String, Object> adaptive() throws InterruptedException {
+        AtomicInteger atomicInteger = new AtomicInteger();
+        AdaptiveThreadPoolExecutor threadPool = new AdaptiveThreadPoolExecutor(2, 5,
+                5, TimeUnit.SECONDS,
+                new ResizableCapacityQueue<>(10),
+                new ThreadFactoryBuilder().setNameFormat("adaptive-pool-%d").build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        String name = threadPoolRegistry.register("adaptive", threadPool);
+        adaptivePoolSizer.manage(name, threadPool, AdaptivePolicy.builder().minThreads(2).maxThreads(20).build());
+        int rejected = 0;
+        for (int i = 1; i <= 20; i++) {
+            TimeUnit.SECONDS.sleep(1);
+            int id = i;
+            try {
+                threadPool.execute(() -> {
+                    slowTask(id);
+                    atomicInteger.incrementAndGet();
+                });
+            } catch (RejectedExecutionException ex) {
+                log.error("error submitting task {}", id, ex);
+                rejected++;
+            }
+        }
+        threadPool.shutdown();
+        threadPool.awaitTermination(1, TimeUnit.MINUTES);
+        List<Map<String, Object>> decisions = adaptivePoolSizer.decisions().stream()
+                .filter(decision -> name.equals(decision.get("pool")))
+                .collect(Collectors.toList());
+        adaptivePoolSizer.release(name);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("completed", atomicInteger.get());
+        result.put("rejected", rejected);
+        result.put("largestPoolSize", threadPool.getLargestPoolSize());
+        result.put("decisions", decisions);
+        log.info("adaptive: {}", result);
+        return result;
+    }
+
+    /**
+     * 溢出任务记录开始顺序的地方，任务从文件反序列化出来是新对象，只能按runId找到这里
+     */
+    private static final Map<String, Queue<Integer>> OVERFLOW_STARTED = new ConcurrentHashMap<>();
+
+    /**
+     * right()的队列满了就拒绝，这里换成DiskOverflowQueue：堆内只放10个任务，其余的溢出到64KB的映射文件，
+     * 50毫秒提交一个2秒的任务，同样提交20个，一个都不拒绝，并且按提交顺序开始执行
+     * （5个线程同时取任务，startedOrder里相邻的编号可能互换）。
+     * 溢出队列不会让线程池扩容（入队只在文件写满时失败），所以核心线程数和最大线程数都设为5。
+     * @param tasks 提交的任务数
+     * @param taskMs 每个任务执行的毫秒数
+     * @param intervalMs 提交间隔
+     * @return 完成数、拒绝数、溢出数、文件峰值字节数和开始执行的顺序
+     */
+    @GetMapping("overflow")
+    public Map<String, Object> overflow(@RequestParam(value = "tasks", defaultValue = "20") int tasks,
+                                        @RequestParam(value = "taskMs", defaultValue = "2000") long taskMs,
+                                        @RequestParam(value = "intervalMs", defaultValue = "50") long intervalMs)
+            throws InterruptedException, IOException {
+        String runId = UUID.randomUUID().toString();
+        File file = new File(System.getProperty("java.io.tmpdir"), "threadpooloom-overflow-" + runId + ".dat");
+        Queue<Integer> started = new ConcurrentLinkedQueue<>();
+        OVERFLOW_STARTED.put(runId, started);
+        DiskOverflowQueue queue = new DiskOverflowQueue(10, file, 64 * 1024, false, OverflowTask.class);
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(5, 5,
+                0, TimeUnit.SECONDS,
+                queue,
+                new ThreadFactoryBuilder().setNameFormat("overflow-pool-%d").build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        threadPoolRegistry.register("overflow", threadPool);
+        int rejected = 0;
+        try {
+            for (int i = 1; i <= tasks; i++) {
+                try {
+                    // 用execute提交可序列化的任务，submit包装出的FutureTask无法溢出到文件
+                    threadPool.execute(new OverflowTask(runId, i, taskMs));
+                } catch (RejectedExecutionException ex) {
+                    log.error("error submitting task {}", i, ex);
+                    rejected++;
+                }
+                TimeUnit.MILLISECONDS.sleep(intervalMs);
+            }
+            threadPool.shutdown();
+            threadPool.awaitTermination(1, TimeUnit.HOURS);
+        } finally {
+            OVERFLOW_STARTED.remove(runId);
+            queue.close();
+            file.delete();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("completed", started.size());
+        result.put("rejected", rejected);
+        result.put("spilled", queue.getSpilledCount());
+        result.put("peakDiskBytes", queue.getPeakDiskBytes());
+        result.put("startedOrder", new ArrayList<>(started));
+        log.info("overflow: {}", result);
+        return result;
+    }
+
+    /**
+     * 模拟重启：先把任务放进一个没有工作线程的DiskOverflowQueue，不执行就关闭（堆内队头的任务随进程一起丢失），
+     * 再用同一个文件创建新队列和单线程的线程池，文件里的任务被恢复并严格按原来的顺序执行
+     * @param tasks 重启前入队的任务数
+     * @return 重启前溢出数、恢复数和恢复后开始执行的顺序
+     */
+    @GetMapping("overflow/recover")
+    public Map<String, Object> overflowRecover(@RequestParam(value = "tasks", defaultValue = "20") int tasks)
+            throws InterruptedException, IOException {
+        String runId = UUID.randomUUID().toString();
+        File file = new File(System.getProperty("java.io.tmpdir"), "threadpooloom-overflow-" + runId + ".dat");
+        Queue<Integer> started = new ConcurrentLinkedQueue<>();
+        OVERFLOW_STARTED.put(runId, started);
+        Map<String, Object> result = new LinkedHashMap<>();
+        try {
+            DiskOverflowQueue before = new DiskOverflowQueue(10, file, 64 * 1024, false, OverflowTask.class);
+            for (int i = 1; i <= tasks; i++) {
+                before.offer(new OverflowTask(runId, i, 100));
+            }
+            result.put("spilledBeforeRestart", before.getSpilledCount());
+            before.close();
+
+            DiskOverflowQueue after = new DiskOverflowQueue(10, file, 64 * 1024, false, OverflowTask.class);
+            result.put("recovered", after.getRecoveredCount());
+            ThreadPoolExecutor threadPool = new ThreadPoolExecutor(1, 1,
+                    0, TimeUnit.SECONDS,
+                    after,
+                    new ThreadFactoryBuilder().setNameFormat("overflow-recover-pool-%d").build(),
+                    new ThreadPoolExecutor.AbortPolicy());
+            threadPoolRegistry.register("overflow-recover", threadPool);
+            // 恢复的任务已经在队列里，没有新任务提交时不会创建工作线程，需要先启动核心线程
+            threadPool.prestartAllCoreThreads();
+            threadPool.shutdown();
+            threadPool.awaitTermination(1, TimeUnit.HOURS);
+            after.close();
+        } finally {
+            OVERFLOW_STARTED.remove(runId);
+            file.delete();
+        }
+        result.put("completed", started.size());
+        result.put("startedOrder", new ArrayList<>(started));
+        log.info("overflow recover: {}", result);
+        return result;
+    }
+
+    /**
+     * 可以溢出到文件的任务，只带任务描述（runId、编号、耗时），不带闭包
+     */
+    @RequiredArgsConstructor
+    private static class OverflowTask implements Runnable, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String runId;
+        private final int id;
+        private final long taskMs;
+
+        @Override
+        public void run() {
+            Queue<Integer> started = OVERFLOW_STARTED.get(runId);
+            if (started != null) {
+                started.add(id);
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(taskMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 }
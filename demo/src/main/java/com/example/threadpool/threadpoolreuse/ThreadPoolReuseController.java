@@ -1,10 +1,157 @@
 package com.example.threadpool.threadpoolreuse;
 
+import com.example.threadpool.executor.ExecutorFactory;
+import com.example.threadpool.monitor.ThreadPoolRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.IntConsumer;
+
 /**
  * @ClassName: ThreadPoolReuseController
  * @Description: 务必确认清楚线程池本身是不是复用的
+ * 常见的错误是把“获取线程池”写成了每次new一个：看起来用了线程池，实际上每个请求都在创建新线程，
+ * 线程数随请求量上涨，线程创建和销毁的开销一点没省。原书的例子里每次newCachedThreadPool还不关闭，
+ * 空闲线程要60秒后才退出，压力持续时线程数直线上升。
+ * wrong按请求创建线程池（这里至少用完关闭了），right从ExecutorFactory获取共享的舱壁线程池，
+ * compare在服务端用固定并发持续调用两种写法，对比吞吐、新建线程数和线程数峰值。
+ * 反复创建的线程池会被ThreadPoolRegistry发现并打印警告，也可以在/threadpoolmonitor/throwaway查看。
  * @Author: Ric
  * @Create: 2024-01-25 18:12
  */
+@Slf4j
+@RestController
+@RequestMapping("/threadpoolreuse")
+@RequiredArgsConstructor
 public class ThreadPoolReuseController {
+
+    private final ExecutorFactory executorFactory;
+
+    private final ThreadPoolRegistry threadPoolRegistry;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    @GetMapping("/wrong")
+    public Map<String, Object> wrong(@RequestParam(value = "tasks", defaultValue = "10") int tasks) throws Exception {
+        return measure(() -> runPerRequestPool(tasks));
+    }
+
+    @GetMapping("/right")
+    public Map<String, Object> right(@RequestParam(value = "tasks", defaultValue = "10") int tasks) throws Exception {
+        return measure(() -> runSharedPool(tasks));
+    }
+
+    /**
+     * @param requests 每种写法总共调用多少次
+     * @param concurrency 同时调用的客户端数
+     * @param tasks 每次调用提交的任务数
+     * @return 两种写法的吞吐和线程数
+     */
+    @GetMapping("/compare")
+    public Map<String, Object> compare(@RequestParam(value = "requests", defaultValue = "500") int requests,
+                                       @RequestParam(value = "concurrency", defaultValue = "8") int concurrency,
+                                       @RequestParam(value = "tasks", defaultValue = "10") int tasks) throws Exception {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("perRequestPool", sustained(requests, concurrency, i -> runPerRequestPool(tasks)));
+        result.put("sharedPool", sustained(requests, concurrency, i -> runSharedPool(tasks)));
+        log.info("thread pool reuse: {}", result);
+        return result;
+    }
+
+    /**
+     * 每次调用都创建一个新的线程池，任务跑完再关闭
+     */
+    private void runPerRequestPool(int tasks) {
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+                60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("reuse-wrong-%d").build());
+        threadPoolRegistry.register("reuse-wrong", threadPool);
+        try {
+            runTasks(threadPool, tasks);
+        } finally {
+            threadPool.shutdown();
+        }
+    }
+
+    private void runSharedPool(int tasks) {
+        runTasks(executorFactory.bulkhead("reuse-right", 8, 8, 10000), tasks);
+    }
+
+    /**
+     * 每个任务做一点计算，模拟很短的业务逻辑，这时线程创建的开销占比最大
+     */
+    private static void runTasks(ExecutorService threadPool, int tasks) {
+        List<Future<Long>> futures = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) {
+            futures.add(threadPool.submit(() -> {
+                long sum = 0;
+                for (int j = 0; j < 10000; j++) {
+                    sum += j ^ (sum >>> 3);
+                }
+                return sum;
+            }));
+        }
+        try {
+            for (Future<Long> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private Map<String, Object> measure(Runnable action) {
+        long startedBefore = threadMXBean.getTotalStartedThreadCount();
+        long begin = System.nanoTime();
+        action.run();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("tookUs", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - begin));
+        result.put("threadsStarted", threadMXBean.getTotalStartedThreadCount() - startedBefore);
+        result.put("liveThreads", threadMXBean.getThreadCount());
+        return result;
+    }
+
+    private Map<String, Object> sustained(int requests, int concurrency, IntConsumer call) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency,
+                new ThreadFactoryBuilder().setNameFormat("reuse-client-%d").build());
+        threadMXBean.resetPeakThreadCount();
+        long startedBefore = threadMXBean.getTotalStartedThreadCount();
+        long begin = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                int id = i;
+                futures.add(clients.submit(() -> call.accept(id)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            clients.shutdown();
+        }
+        long tookNanos = System.nanoTime() - begin;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("requests", requests);
+        result.put("tookMs", TimeUnit.NANOSECONDS.toMillis(tookNanos));
+        result.put("requestsPerSecond", Math.round(requests * 1e9 / tookNanos));
+        result.put("threadsStarted", threadMXBean.getTotalStartedThreadCount() - startedBefore - concurrency);
+        result.put("peakThreads", threadMXBean.getPeakThreadCount());
+        return result;
+    }
 }
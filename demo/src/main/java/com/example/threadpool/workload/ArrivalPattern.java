@@ -0,0 +1,36 @@
+package com.example.threadpool.workload;
+
+import java.util.Random;
+
+/**
+ * @ClassName: ArrivalPattern
+ * @Description: 任务到达方式，三种方式的平均速率相同
+ * CONSTANT：固定间隔；
+ * POISSON：间隔服从指数分布，模拟大量互相独立的用户；
+ * BURSTY：burstSize个任务同时到达，然后空闲一段时间，模拟定时任务、消息批量投递。
+ * @Create: 2026-10-21 09:50
+ */
+public enum ArrivalPattern {
+    CONSTANT, POISSON, BURSTY;
+
+    /**
+     * @param random 随机数
+     * @param ratePerSecond 平均每秒到达的任务数
+     * @param burstSize BURSTY每批的任务数
+     * @param index 第几个任务，从0开始
+     * @return 距离上一个任务到达的纳秒数
+     */
+    long nextIntervalNanos(Random random, double ratePerSecond, int burstSize, int index) {
+        double meanNanos = 1_000_000_000d / ratePerSecond;
+        switch (this) {
+            case CONSTANT:
+                return (long) meanNanos;
+            case POISSON:
+                return (long) (-Math.log(1 - random.nextDouble()) * meanNanos);
+            case BURSTY:
+                return index % burstSize == 0 ? (long) (meanNanos * burstSize) : 0;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+}
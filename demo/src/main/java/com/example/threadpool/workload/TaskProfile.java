@@ -0,0 +1,92 @@
+package com.example.threadpool.workload;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @ClassName: TaskProfile
+ * @Description: 任务类型
+ * CPU：纯计算，工作量按启动时校准的“每微秒迭代次数”换算，线程数超过核数后单个任务会变慢；
+ * IO：park等待，模拟调用下游、读写磁盘，不占CPU；
+ * ALLOCATION：按1KB一块分配内存并逐块写入，模拟序列化、拼大字符串这类制造垃圾的任务；
+ * MIXED：每个任务随机选择以上一种，CPU和IO各40%，ALLOCATION占20%。
+ * @Create: 2026-10-21 09:30
+ */
+public enum TaskProfile {
+    CPU, IO, ALLOCATION, MIXED;
+
+    /**
+     * 防止计算结果被JIT消除
+     */
+    static volatile long blackhole;
+
+    private static final long ITERATIONS_PER_MICRO = calibrate();
+
+    /**
+     * 为MIXED选出本次实际执行的类型，在提交线程上用固定种子的Random决定，保证不同线程池配置跑的是同一批任务
+     * @param random 随机数
+     * @return 实际类型
+     */
+    TaskProfile resolve(Random random) {
+        if (this != MIXED) {
+            return this;
+        }
+        int dice = random.nextInt(10);
+        return dice < 4 ? CPU : dice < 8 ? IO : ALLOCATION;
+    }
+
+    /**
+     * @param workMicros CPU和IO类型的工作时长
+     * @param allocKb ALLOCATION类型分配的内存
+     */
+    void execute(long workMicros, int allocKb) {
+        switch (this) {
+            case CPU:
+                blackhole = spin(workMicros * ITERATIONS_PER_MICRO);
+                break;
+            case IO:
+                long deadline = System.nanoTime() + workMicros * 1000;
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(remaining);
+                }
+                break;
+            case ALLOCATION:
+                List<byte[]> chunks = new ArrayList<>(allocKb);
+                for (int i = 0; i < allocKb; i++) {
+                    byte[] chunk = new byte[1024];
+                    chunk[i & 1023] = (byte) i;
+                    chunks.add(chunk);
+                }
+                blackhole = chunks.size();
+                break;
+            default:
+                throw new IllegalStateException("MIXED must be resolved before execution");
+        }
+    }
+
+    private static long spin(long iterations) {
+        long x = 88172645463325252L;
+        for (long i = 0; i < iterations; i++) {
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+        }
+        return x;
+    }
+
+    private static long calibrate() {
+        // 先预热让JIT编译spin，再取几轮中最快的一次
+        spin(20_000_000);
+        long best = Long.MAX_VALUE;
+        long iterations = 5_000_000;
+        for (int i = 0; i < 5; i++) {
+            long begin = System.nanoTime();
+            blackhole = spin(iterations);
+            best = Math.min(best, System.nanoTime() - begin);
+        }
+        return Math.max(1, iterations * 1000 / Math.max(1, best));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.threadpool.workload;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @ClassName: WorkloadController
+ * @Description: 用合成负载给线程池配置打分
+ * 同一批任务依次跑在pools指定的几种线程池配置上（core-max-queue，逗号分隔），对比排队时间和执行时间的百分位，例如
+ * /workload/run?profile=IO&arrival=BURSTY&rate=800&pools=4-4-1000,16-16-1000,4-32-10
+ * adaptive=true时core和max作为自动调整的上下界，例如 /workload/run?profile=IO&rate=800&adaptive=true&pools=2-64-1000
+ * @Create: 2026-10-21 11:00
+ */
+@RestController
+@RequestMapping("/workload")
+@RequiredArgsConstructor
+public class WorkloadController {
+
+    private final WorkloadRunner workloadRunner;
+
+    @GetMapping("/run")
+    public List<Map<String, Object>> run(@RequestParam(value = "profile", defaultValue = "MIXED") TaskProfile profile,
+                                         @RequestParam(value = "arrival", defaultValue = "POISSON") ArrivalPattern arrival,
+                                         @RequestParam(value = "rate", defaultValue = "500") double rate,
+                                         @RequestParam(value = "tasks", defaultValue = "2000") int tasks,
+                                         @RequestParam(value = "workMicros", defaultValue = "2000") long workMicros,
+                                         @RequestParam(value = "allocKb", defaultValue = "256") int allocKb,
+                                         @RequestParam(value = "burstSize", defaultValue = "50") int burstSize,
+                                         @RequestParam(value = "seed", defaultValue = "42") long seed,
+                                         @RequestParam(value = "pools", defaultValue = "4-4-1000") String pools,
+                                         @RequestParam(value = "adaptive", defaultValue = "false") boolean adaptive,
+                                         @RequestParam(value = "sloMs", defaultValue = "0") long sloMs)
+            throws InterruptedException {
+        WorkloadSpec base = WorkloadSpec.builder()
+                .profile(profile).arrival(arrival).ratePerSecond(rate).tasks(tasks)
+                .workMicros(workMicros).allocKb(allocKb).burstSize(burstSize).seed(seed)
+                .adaptive(adaptive).queueWaitSloMillis(sloMs)
+                .build();
+        List<Map<String, Object>> result = new ArrayList<>();
+        try {
+            for (String pool : pools.split(",")) {
+                String[] parts = pool.trim().split("-");
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("pool must be core-max-queue: " + pool);
+                }
+                result.add(workloadRunner.run(base.toBuilder()
+                        .corePoolSize(Integer.parseInt(parts[0]))
+                        .maxPoolSize(Integer.parseInt(parts[1]))
+                        .queueCapacity(Integer.parseInt(parts[2]))
+                        .build()));
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
+        return result;
+    }
+
+    @GetMapping("/results")
+    public List<Map<String, Object>> results() {
+        return workloadRunner.results();
+    }
+}
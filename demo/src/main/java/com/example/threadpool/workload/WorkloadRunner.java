@@ -0,0 +1,146 @@
+package com.example.threadpool.workload;
+
+import com.example.lock.monitor.LatencyHistogram;
+import com.example.threadpool.executor.AdaptivePolicy;
+import com.example.threadpool.executor.AdaptivePoolSizer;
+import com.example.threadpool.executor.AdaptiveThreadPoolExecutor;
+import com.example.threadpool.executor.ResizableCapacityQueue;
+import com.example.threadpool.monitor.ThreadPoolRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @ClassName: WorkloadRunner
+ * @Description: 按WorkloadSpec生成任务、提交到一个临时线程池，分别记录排队时间和执行时间
+ * 排队时间是从提交到开始执行，反映线程数够不够；执行时间是任务本身的耗时，CPU型任务线程数超过核数后会被拉长。
+ * 到达时间按绝对时刻计算，提交线程偶尔睡过头也不会让整体速率漂移。
+ * 线程池满了直接拒绝并计数，不用CallerRunsPolicy，否则提交线程被拖慢，到达速率就不是设定的值了。
+ * 最近的结果按线程池配置保留，方便对比。
+ * @Create: 2026-10-21 10:30
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WorkloadRunner {
+
+    private static final int MAX_RESULTS = 50;
+
+    private final ThreadPoolRegistry threadPoolRegistry;
+
+    private final AdaptivePoolSizer adaptivePoolSizer;
+
+    private final Deque<Map<String, Object>> results = new ArrayDeque<>();
+
+    public Map<String, Object> run(WorkloadSpec spec) throws InterruptedException {
+        spec.validate();
+        ThreadPoolExecutor threadPool = spec.isAdaptive()
+                ? new AdaptiveThreadPoolExecutor(
+                spec.getCorePoolSize(), spec.getMaxPoolSize(),
+                5, TimeUnit.SECONDS,
+                new ResizableCapacityQueue<>(spec.getQueueCapacity()),
+                new ThreadFactoryBuilder().setNameFormat("workload-" + spec.poolConfig() + "-%d").build(),
+                new ThreadPoolExecutor.AbortPolicy())
+                : new ThreadPoolExecutor(
+                spec.getCorePoolSize(), spec.getMaxPoolSize(),
+                5, TimeUnit.SECONDS,
+                new ResizableCapacityQueue<>(spec.getQueueCapacity()),
+                new ThreadFactoryBuilder().setNameFormat("workload-" + spec.poolConfig() + "-%d").build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        String name = threadPoolRegistry.register("workload-" + spec.poolConfig(), threadPool);
+        if (spec.isAdaptive()) {
+            adaptivePoolSizer.manage(name, (AdaptiveThreadPoolExecutor) threadPool, AdaptivePolicy.builder()
+                    .minThreads(spec.getCorePoolSize())
+                    .maxThreads(spec.getMaxPoolSize())
+                    .queueWaitSloMillis(spec.getQueueWaitSloMillis())
+                    .build());
+        }
+        LatencyHistogram queueTime = new LatencyHistogram();
+        LatencyHistogram runTime = new LatencyHistogram();
+        Random random = new Random(spec.getSeed());
+        int rejected = 0;
+        long begin = System.nanoTime();
+        long arrival = begin;
+        try {
+            for (int i = 0; i < spec.getTasks(); i++) {
+                arrival += spec.getArrival().nextIntervalNanos(random, spec.getRatePerSecond(), spec.getBurstSize(), i);
+                TaskProfile profile = spec.getProfile().resolve(random);
+                double scale = -Math.log(1 - random.nextDouble());
+                long workMicros = (long) (spec.getWorkMicros() * scale);
+                int allocKb = (int) (spec.getAllocKb() * scale);
+                long wait;
+                while ((wait = arrival - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                long submitted = System.nanoTime();
+                try {
+                    threadPool.execute(() -> {
+                        long start = System.nanoTime();
+                        queueTime.record(start - submitted);
+                        profile.execute(workMicros, allocKb);
+                        runTime.record(System.nanoTime() - start);
+                    });
+                } catch (RejectedExecutionException ex) {
+                    rejected++;
+                }
+            }
+        } finally {
+            threadPool.shutdown();
+        }
+        if (!threadPool.awaitTermination(5, TimeUnit.MINUTES)) {
+            threadPool.shutdownNow();
+        }
+        threadPoolRegistry.unregister(name);
+        Map<String, Object> lastWindow = spec.isAdaptive() ? adaptivePoolSizer.status().get(name) : null;
+        adaptivePoolSizer.release(name);
+        long tookNanos = System.nanoTime() - begin;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("poolConfig", spec.poolConfig());
+        result.put("profile", spec.getProfile());
+        result.put("arrival", spec.getArrival());
+        result.put("ratePerSecond", spec.getRatePerSecond());
+        result.put("submitted", spec.getTasks());
+        result.put("rejected", rejected);
+        result.put("completed", threadPool.getCompletedTaskCount());
+        result.put("largestPoolSize", threadPool.getLargestPoolSize());
+        if (spec.isAdaptive()) {
+            result.put("finalCorePoolSize", threadPool.getCorePoolSize());
+            result.put("lastWindow", lastWindow);
+        }
+        result.put("tookMs", TimeUnit.NANOSECONDS.toMillis(tookNanos));
+        result.put("throughput", Math.round(threadPool.getCompletedTaskCount() * 1e9 / tookNanos));
+        result.put("queueTime", queueTime.snapshot());
+        result.put("runTime", runTime.snapshot());
+        log.info("workload {}", result);
+        synchronized (results) {
+            results.addFirst(result);
+            while (results.size() > MAX_RESULTS) {
+                results.removeLast();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return 最近的结果，新的在前
+     */
+    public List<Map<String, Object>> results() {
+        synchronized (results) {
+            return new ArrayList<>(results);
+        }
+    }
+}
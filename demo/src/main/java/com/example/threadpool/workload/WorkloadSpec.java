@@ -0,0 +1,83 @@
+package com.example.threadpool.workload;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * @ClassName: WorkloadSpec
+ * @Description: 一次压测的参数：任务类型、到达方式和线程池配置
+ * 单个任务的工作量服从指数分布，workMicros和allocKb是平均值，少数任务会明显更长，和真实业务的长尾一致。
+ * 相同seed生成的任务序列完全一致，只改线程池参数就能对比不同配置。
+ * adaptive为true时core和max是自动调整的上下界，用来对比固定配置和按负载调整的效果。
+ * @Create: 2026-10-21 10:05
+ */
+@Getter
+@ToString
+@Builder(toBuilder = true)
+public class WorkloadSpec {
+
+    @Builder.Default
+    private final TaskProfile profile = TaskProfile.MIXED;
+
+    @Builder.Default
+    private final ArrivalPattern arrival = ArrivalPattern.POISSON;
+
+    @Builder.Default
+    private final double ratePerSecond = 500;
+
+    @Builder.Default
+    private final int tasks = 2000;
+
+    @Builder.Default
+    private final long workMicros = 2000;
+
+    @Builder.Default
+    private final int allocKb = 256;
+
+    @Builder.Default
+    private final int burstSize = 50;
+
+    @Builder.Default
+    private final long seed = 42;
+
+    @Builder.Default
+    private final int corePoolSize = 4;
+
+    @Builder.Default
+    private final int maxPoolSize = 4;
+
+    @Builder.Default
+    private final int queueCapacity = 1000;
+
+    /**
+     * 为true时由AdaptivePoolSizer在[corePoolSize, maxPoolSize]之间调整核心线程数
+     */
+    @Builder.Default
+    private final boolean adaptive = false;
+
+    /**
+     * adaptive时的排队时间SLO，0表示不设置
+     */
+    @Builder.Default
+    private final long queueWaitSloMillis = 0;
+
+    void validate() {
+        if (ratePerSecond <= 0 || tasks <= 0 || workMicros < 0 || allocKb < 0 || burstSize <= 0) {
+            throw new IllegalArgumentException("ratePerSecond, tasks and burstSize must be positive: " + this);
+        }
+        if (adaptive && corePoolSize <= 0) {
+            throw new IllegalArgumentException("adaptive pool needs at least one core thread: " + this);
+        }
+        if (corePoolSize < 0 || maxPoolSize <= 0 || maxPoolSize < corePoolSize || queueCapacity <= 0) {
+            throw new IllegalArgumentException("invalid pool configuration: " + this);
+        }
+    }
+
+    /**
+     * @return 线程池配置的简写，core-max-queue
+     */
+    public String poolConfig() {
+        return (adaptive ? "adaptive-" : "") + corePoolSize + "-" + maxPoolSize + "-" + queueCapacity;
+    }
+}
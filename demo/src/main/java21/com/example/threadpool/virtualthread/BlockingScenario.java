@@ -0,0 +1,74 @@
+package com.example.threadpool.virtualthread;
+
+import com.example.lock.deadlock.DeadLockController;
+import com.example.lock.lockgranularity.LockGranularityController;
+import com.example.threadpool.threadpooloom.ThreadPoolOOMController;
+
+import java.util.function.IntFunction;
+
+/**
+ * @ClassName: BlockingScenario
+ * @Description: 项目里几个大部分时间都在睡眠或等锁的代码路径，直接调用原来的方法，只把任务时长缩小到适合上万并发的规模
+ * @Create: 2026-10-19 14:05
+ */
+public enum BlockingScenario {
+
+    /**
+     * LockGranularityController.wrong()：coarseAdd把slow()放在synchronized(this)里面。
+     * 在synchronized里睡眠会把虚拟线程钉在载体线程上（pinning），所有任务排队，虚拟线程也救不了
+     */
+    SLOW_COARSE {
+        @Override
+        IntFunction<Runnable> tasks() {
+            LockGranularityController controller = new LockGranularityController(METRICS_PREFIX);
+            return i -> () -> controller.coarseAdd(i);
+        }
+    },
+
+    /**
+     * LockGranularityController.right()：fineAdd把slow()放在锁外，只锁List
+     */
+    SLOW_FINE {
+        @Override
+        IntFunction<Runnable> tasks() {
+            LockGranularityController controller = new LockGranularityController(METRICS_PREFIX);
+            return i -> () -> controller.fineAdd(i);
+        }
+    },
+
+    /**
+     * ThreadPoolOOMController里的任务：纯睡眠，原来是10秒，这里缩短到100ms
+     */
+    POOL_TASK {
+        @Override
+        IntFunction<Runnable> tasks() {
+            return i -> () -> ThreadPoolOOMController.blockingWork(100);
+        }
+    },
+
+    /**
+     * DeadLockController.right()：按商品名排序后逐个获取10个商品的ReentrantLock扣减库存。
+     * ReentrantLock不会钉住载体线程，但瓶颈本来就在锁上，上万个虚拟线程同时抢10把锁，
+     * 竞争反而比200个平台线程更激烈，虚拟线程解决的是"线程不够用"，解决不了"锁不够用"
+     */
+    ORDER {
+        @Override
+        IntFunction<Runnable> tasks() {
+            DeadLockController controller = DeadLockController.untracked(10, 1000);
+            return i -> controller::createSortedOrder;
+        }
+    };
+
+    /**
+     * 锁统计的名称前缀，见 /lockmonitor/latency 里的 virtualthread.*
+     */
+    private static final String METRICS_PREFIX = "virtualthread.lockgranularity";
+
+    /**
+     * 每次调用都创建一份新的共享状态（新的controller实例），同一轮对比的所有任务共享，平台线程和虚拟线程两轮互不影响。
+     * 这些controller不往Spring容器里那个controller的List和库存里写数据，
+     * 也不往全局加锁顺序图里注册锁，锁统计用固定的virtualthread前缀，重复调用不会让任何全局状态增长
+     * @return 按任务编号创建单个任务
+     */
+    abstract IntFunction<Runnable> tasks();
+}
@@ -0,0 +1,92 @@
+package com.example.threadpool.virtualthread;
+
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @ClassName: PinningMonitor
+ * @Description: 通过JFR的jdk.VirtualThreadPinned事件统计载体线程被钉住的次数和位置
+ * 虚拟线程在synchronized代码块里阻塞（或者调用native方法时阻塞）无法从载体线程上卸载，
+ * 载体线程只有CPU核数个，被钉住后其他虚拟线程只能等着。
+ * 这里在对比期间开一个RecordingStream，按栈顶的业务代码位置汇总钉住次数和总时长。
+ * 也可以启动时加 -Djdk.tracePinnedThreads=short 直接在控制台打印。
+ * @Create: 2026-10-19 14:30
+ */
+public class PinningMonitor implements AutoCloseable {
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+
+    private final RecordingStream stream = new RecordingStream();
+
+    private final LongAdder count = new LongAdder();
+
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    private final Map<String, LongAdder> locations = new ConcurrentHashMap<>();
+
+    private boolean closed;
+
+    public PinningMonitor() {
+        // 默认只记录超过20ms的事件，这里全部记录
+        stream.enable(EVENT).withThreshold(Duration.ZERO).withStackTrace();
+        stream.onEvent(EVENT, event -> {
+            count.increment();
+            totalNanos.addAndGet(event.getDuration().toNanos());
+            locations.computeIfAbsent(location(event.getStackTrace() == null ? null
+                    : event.getStackTrace().getFrames()), k -> new LongAdder()).increment();
+        });
+        stream.startAsync();
+    }
+
+    /**
+     * 最靠近栈顶的两个com.example栈帧，也就是发生钉住的业务代码以及调用它的地方
+     */
+    private static String location(List<RecordedFrame> frames) {
+        if (frames == null || frames.isEmpty()) {
+            return "unknown";
+        }
+        List<String> found = new ArrayList<>(2);
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if (type.startsWith("com.example")) {
+                found.add(type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber());
+                if (found.size() == 2) {
+                    break;
+                }
+            }
+        }
+        return found.isEmpty() ? frames.get(0).getMethod().getType().getName() : String.join(" <- ", found);
+    }
+
+    public Map<String, Object> report() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("pinnedEvents", count.sum());
+        result.put("pinnedMillis", totalNanos.get() / 1_000_000);
+        Map<String, Long> where = new LinkedHashMap<>();
+        locations.forEach((location, adder) -> where.put(location, adder.sum()));
+        result.put("locations", where);
+        return result;
+    }
+
+    /**
+     * 停止记录，可以重复调用。stop会等JFR把缓冲区里剩下的事件推送完，所以取报告之前要先close
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        stream.stop();
+        stream.close();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.threadpool.virtualthread;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * @ClassName: VirtualThreadController
+ * @Description: 阻塞型任务在平台线程池和虚拟线程上的吞吐对比（需要 -Pjdk21 编译）
+ * slow()、线程池里的任务、下单时的等锁，大部分时间都在睡眠或者阻塞，
+ * 用平台线程跑时，并发度受限于线程数；换成虚拟线程后，阻塞时虚拟线程从载体线程上卸载，
+ * 上万个任务可以同时阻塞。但有一个例外：在synchronized里阻塞会钉住载体线程，
+ * 比如LockGranularityController.wrong()那样把slow()放进synchronized(this)，
+ * 这时虚拟线程的吞吐和平台线程没有区别，PinningMonitor会把钉住的位置报告出来。
+ * 例如：/virtualthread/compare?scenario=POOL_TASK&tasks=10000
+ * @Create: 2026-10-19 14:50
+ */
+@Slf4j
+@RestController
+@RequestMapping("/virtualthread")
+public class VirtualThreadController {
+
+    /**
+     * 同一批任务分别用固定大小的平台线程池和每任务一个虚拟线程执行，
+     * 输出两者的耗时、吞吐以及虚拟线程执行期间的钉住情况
+     * @param scenario 场景
+     * @param tasks 任务数
+     * @param platformThreads 平台线程池大小，默认和Tomcat最大工作线程数一样是200
+     * @return Map
+     */
+    @GetMapping("/compare")
+    public Map<String, Object> compare(@RequestParam(value = "scenario", defaultValue = "POOL_TASK") BlockingScenario scenario,
+                                       @RequestParam(value = "tasks", defaultValue = "10000") int tasks,
+                                       @RequestParam(value = "platformThreads", defaultValue = "200") int platformThreads)
+            throws InterruptedException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("scenario", scenario);
+        result.put("tasks", tasks);
+        result.put("platform", run(scenario, tasks, Executors.newFixedThreadPool(platformThreads,
+                new ThreadFactoryBuilder().setNameFormat("platform-%d").build())));
+        try (PinningMonitor pinning = new PinningMonitor()) {
+            Map<String, Object> virtual = run(scenario, tasks, Executors.newVirtualThreadPerTaskExecutor());
+            pinning.close();
+            virtual.put("pinning", pinning.report());
+            result.put("virtual", virtual);
+        }
+        log.info("virtual thread compare: {}", result);
+        return result;
+    }
+
+    /**
+     * 依次对比所有场景
+     * @param tasks 任务数
+     * @return Map
+     */
+    @GetMapping("/compare/all")
+    public Map<String, Object> compareAll(@RequestParam(value = "tasks", defaultValue = "10000") int tasks,
+                                          @RequestParam(value = "platformThreads", defaultValue = "200") int platformThreads)
+            throws InterruptedException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (BlockingScenario scenario : BlockingScenario.values()) {
+            result.put(scenario.name(), compare(scenario, tasks, platformThreads));
+        }
+        return result;
+    }
+
+    private Map<String, Object> run(BlockingScenario scenario, int tasks, ExecutorService executor)
+            throws InterruptedException {
+        IntFunction<Runnable> factory = scenario.tasks();
+        long begin = System.nanoTime();
+        try (executor) {
+            for (int i = 0; i < tasks; i++) {
+                executor.execute(factory.apply(i));
+            }
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.HOURS);
+        }
+        long took = System.nanoTime() - begin;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("tookMs", TimeUnit.NANOSECONDS.toMillis(took));
+        result.put("tasksPerSecond", took == 0 ? tasks : tasks * 1_000_000_000L / took);
+        return result;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.threadpool.virtualthread;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executors;
+
+/**
+ * @ClassName: VirtualThreadTomcatConfig
+ * @Description: 让Tomcat用虚拟线程处理请求（需要 -Pjdk21 编译）
+ * 配置 demo.virtual-threads.enabled=true 后，每个请求一个虚拟线程，
+ * /lockgranularity、/deadlock、/threadpooloom 这些长时间阻塞的接口不再占满Tomcat的200个工作线程。
+ * 注意接口内部的parallel()仍然跑在ForkJoinPool上，线程池里的任务仍然跑在各自的平台线程上。
+ * @Create: 2026-10-19 15:20
+ */
+@Configuration
+@ConditionalOnProperty(name = "demo.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadTomcatConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadExecutorCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}